@@ -0,0 +1,272 @@
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves product images for ShopServer under /assets/{path}, where path is an entry of the asset
+ * manifest (e.g. /assets/image/dior_sauvage.png); ?size=card|detail|gallery|gallery_wide serves the
+ * pre-built ThumbnailCache PNG instead. Bytes are never decoded or buffered whole: files go out through
+ * FileChannel.transferTo and asset pack entries straight from the memory mapping. Responses carry a
+ * strong ETag derived from the content hash, honour If-None-Match (304) and single byte ranges, and
+ * may be cached for server.assetMaxAgeSeconds (default 7 days).
+ */
+final class AssetHandler implements HttpHandler {
+    private static final String PREFIX = "/assets/";
+    private static final String CACHE_CONTROL = "public, max-age=" + Long.getLong("server.assetMaxAgeSeconds", 604800L);
+
+    // Hashes of loose files, revalidated against their size and modification time on every request.
+    private final Map<String, Source> fileSources = new ConcurrentHashMap<>();
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            String path = exchange.getRequestURI().getPath().substring(PREFIX.length());
+            // Only manifest entries are served, so no request can reach any other file.
+            if (!AssetRegistry.getInstance().isRegistered(path)) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            String size = sizeParameter(exchange);
+            Source source = size == null ? original(path) : thumbnail(path, size);
+            if (source == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            serve(exchange, source);
+        } catch (IllegalArgumentException e) {
+            exchange.sendResponseHeaders(400, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void serve(HttpExchange exchange, Source source) throws IOException {
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("ETag", source.etag);
+        headers.set("Cache-Control", CACHE_CONTROL);
+        headers.set("Accept-Ranges", "bytes");
+        headers.set("Content-Type", source.contentType);
+
+        Headers request = exchange.getRequestHeaders();
+        if (matches(request.getFirst("If-None-Match"), source.etag)) {
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+
+        long start = 0;
+        long length = source.length;
+        int status = 200;
+        String range = request.getFirst("Range");
+        String ifRange = request.getFirst("If-Range");
+        if (range != null && (ifRange == null || ifRange.trim().equals(source.etag))) {
+            long[] bounds = parseRange(range, source.length);
+            if (bounds != null && bounds.length == 0) {
+                headers.set("Content-Range", "bytes */" + source.length);
+                exchange.sendResponseHeaders(416, -1);
+                return;
+            }
+            if (bounds != null) {
+                start = bounds[0];
+                length = bounds[1] - bounds[0] + 1;
+                status = 206;
+                headers.set("Content-Range", "bytes " + bounds[0] + "-" + bounds[1] + "/" + source.length);
+            }
+        }
+
+        if (exchange.getRequestMethod().equals("HEAD")) {
+            headers.set("Content-Length", Long.toString(length));
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            WritableByteChannel target = Channels.newChannel(out);
+            if (source.file != null) {
+                try (FileChannel channel = FileChannel.open(source.file.toPath(), StandardOpenOption.READ)) {
+                    long position = start;
+                    long remaining = length;
+                    while (remaining > 0) {
+                        long sent = channel.transferTo(position, remaining, target);
+                        if (sent <= 0) break; // File shrank underneath us; the client sees a short response
+                        position += sent;
+                        remaining -= sent;
+                    }
+                }
+            } else {
+                ByteBuffer bytes = source.packBytes.duplicate();
+                bytes.position((int) start).limit((int) (start + length));
+                while (bytes.hasRemaining()) {
+                    target.write(bytes);
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses a single "bytes=first-last", "bytes=first-" or "bytes=-suffix" range. Returns {first, last},
+     * an empty array if the range cannot be satisfied, or null to ignore the header and send everything
+     * (malformed or multi-range requests).
+     */
+    static long[] parseRange(String header, long size) {
+        String value = header.trim();
+        if (!value.startsWith("bytes=") || value.indexOf(',') >= 0) {
+            return null;
+        }
+        value = value.substring("bytes=".length()).trim();
+        int dash = value.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            String first = value.substring(0, dash).trim();
+            String last = value.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0 || size == 0) return new long[0];
+                return new long[] {Math.max(0, size - suffix), size - 1};
+            }
+            long from = Long.parseLong(first);
+            if (from >= size) return new long[0];
+            long to = last.isEmpty() ? size - 1 : Long.parseLong(last);
+            if (to < from) return null;
+            return new long[] {from, Math.min(to, size - 1)};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2); // Weak comparison, as If-None-Match requires
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String sizeParameter(HttpExchange exchange) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            if (pair.startsWith("size=")) {
+                return URLDecoder.decode(pair.substring("size=".length()), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    // === Sources ===
+
+    private Source original(String path) throws IOException {
+        AssetPack pack = AssetPack.getDefault();
+        int id = pack == null ? -1 : pack.idOf(path);
+        if (id >= 0) {
+            ByteBuffer bytes = pack.slice(id);
+            return new Source(null, bytes, bytes.remaining(), 0, "\"" + pack.hashOf(id) + "\"", contentType(path));
+        }
+        File file = locate(path);
+        if (file == null) {
+            return null;
+        }
+        long length = file.length();
+        long modified = file.lastModified();
+        Source cached = fileSources.get(path);
+        if (cached != null && cached.length == length && cached.lastModified == modified) {
+            return cached;
+        }
+        // Hash through a read-only mapping, so even the first request keeps the file off the heap.
+        String hash;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            hash = ImageCache.contentHash(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+        Source source = new Source(file, null, length, modified, "\"" + hash + "\"", contentType(path));
+        fileSources.put(path, source);
+        return source;
+    }
+
+    private static Source thumbnail(String path, String sizeName) {
+        ThumbnailCache.Size size = ThumbnailCache.Size.valueOf(sizeName.toUpperCase(Locale.ROOT));
+        File file = ThumbnailCache.diskFile(path, size);
+        if (file == null) {
+            return null;
+        }
+        // The cache file is named after the source hash and size, so its name is already a content tag.
+        String name = file.getName();
+        return new Source(file, null, file.length(), file.lastModified(),
+                "\"" + name.substring(0, name.length() - ".png".length()) + "\"", "image/png");
+    }
+
+    // Same lookup order as ImageLoader.readAsset, minus the pack: classpath directory, then project root.
+    private static File locate(String path) {
+        URL resource = AssetHandler.class.getClassLoader().getResource(path);
+        if (resource != null && resource.getProtocol().equals("file")) {
+            try {
+                File file = Paths.get(resource.toURI()).toFile();
+                if (file.isFile()) return file;
+            } catch (URISyntaxException e) {
+                // Fall through to the project root
+            }
+        }
+        File file = new File(path);
+        return file.isFile() ? file : null;
+    }
+
+    private static String contentType(String path) {
+        String lower = path.toLowerCase(Locale.ROOT);
+        if (lower.endsWith(".png")) return "image/png";
+        if (lower.endsWith(".jpg") || lower.endsWith(".jpeg")) return "image/jpeg";
+        if (lower.endsWith(".gif")) return "image/gif";
+        if (lower.endsWith(".webp")) return "image/webp";
+        return "application/octet-stream";
+    }
+
+    private static final class Source {
+        final File file;          // Loose file, or null for an asset pack entry
+        final ByteBuffer packBytes; // Slice of the pack mapping when file is null
+        final long length;
+        final long lastModified;
+        final String etag;
+        final String contentType;
+
+        Source(File file, ByteBuffer packBytes, long length, long lastModified, String etag, String contentType) {
+            this.file = file;
+            this.packBytes = packBytes;
+            this.length = length;
+            this.lastModified = lastModified;
+            this.etag = etag;
+            this.contentType = contentType;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Read-only view of an asset pack written by AssetPacker. The whole file is memory-mapped once and
+ * each asset is handed out as a ByteBuffer slice of the mapping, so reading an image needs no file
+ * lookups and no copies.
+ *
+ * Layout: int magic, int count, then per asset {UTF path, long offset, int length, byte[32] SHA-256},
+ * followed by the raw asset bytes.
+ */
+public final class AssetPack {
+    static final int MAGIC = 0x50464B31; // "PFK1"
+    static final int HASH_LENGTH = 32;
+
+    private static final Object defaultLock = new Object();
+    private static AssetPack defaultPack;
+    private static boolean defaultLoaded;
+
+    private final MappedByteBuffer mapping;
+    private final Map<String, Integer> ids;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final String[] hashes;
+
+    private AssetPack(MappedByteBuffer mapping, Map<String, Integer> ids, int[] offsets, int[] lengths, String[] hashes) {
+        this.mapping = mapping;
+        this.ids = ids;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.hashes = hashes;
+    }
+
+    /** The pack named by the asset.pack system property (default "assets.pack"), or null if there is none. */
+    public static AssetPack getDefault() {
+        synchronized (defaultLock) {
+            if (!defaultLoaded) {
+                defaultLoaded = true;
+                File file = new File(System.getProperty("asset.pack", "assets.pack"));
+                if (file.isFile()) {
+                    try {
+                        defaultPack = open(file);
+                        System.out.println("Loaded asset pack: " + file.getAbsolutePath() + " (" + defaultPack.size() + " assets)");
+                    } catch (IOException e) {
+                        System.out.println("Could not open asset pack: " + file.getAbsolutePath());
+                    }
+                }
+            }
+            return defaultPack;
+        }
+    }
+
+    public static AssetPack open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Asset pack larger than 2 GB: " + file);
+            }
+            MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (mapping.getInt() != MAGIC) {
+                throw new IOException("Not an asset pack: " + file);
+            }
+            int count = mapping.getInt();
+            Map<String, Integer> ids = new HashMap<>(count * 2);
+            int[] offsets = new int[count];
+            int[] lengths = new int[count];
+            String[] hashes = new String[count];
+            byte[] hash = new byte[HASH_LENGTH];
+            for (int id = 0; id < count; id++) {
+                byte[] path = new byte[mapping.getShort() & 0xFFFF];
+                mapping.get(path);
+                ids.put(new String(path, StandardCharsets.UTF_8), id);
+                offsets[id] = (int) mapping.getLong();
+                lengths[id] = mapping.getInt();
+                mapping.get(hash);
+                hashes[id] = ImageCache.toHex(hash);
+            }
+            return new AssetPack(mapping, ids, offsets, lengths, hashes);
+        }
+    }
+
+    /** Asset ID for a path such as "image/dior_sauvage.png", or -1 if the pack does not contain it. */
+    public int idOf(String path) {
+        Integer id = ids.get(path);
+        return id == null ? -1 : id;
+    }
+
+    /** Zero-copy view of the asset's bytes. */
+    public ByteBuffer slice(int id) {
+        ByteBuffer view = mapping.duplicate();
+        view.position(offsets[id]).limit(offsets[id] + lengths[id]);
+        return view.slice();
+    }
+
+    /** SHA-256 of the asset's bytes as computed by the packer, in hex. */
+    public String hashOf(int id) {
+        return hashes[id];
+    }
+
+    public int size() {
+        return offsets.length;
+    }
+}
@@ -0,0 +1,93 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Build-time tool that writes every image under the given directories into one indexed pack file
+ * for AssetPack. Asset paths are stored relative to the root, e.g. "image/dior_sauvage.png".
+ *
+ * Usage: java AssetPacker [output] [root] [dir...]
+ * Defaults: java AssetPacker assets.pack src image image_description
+ */
+public class AssetPacker {
+    public static void main(String[] args) throws IOException {
+        File output = new File(args.length > 0 ? args[0] : "assets.pack");
+        File root = new File(args.length > 1 ? args[1] : "src");
+        List<String> dirs = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            dirs.add(args[i]);
+        }
+        if (dirs.isEmpty()) {
+            dirs.add("image");
+            dirs.add("image_description");
+        }
+
+        List<String> paths = new ArrayList<>();
+        for (String dir : dirs) {
+            File[] files = new File(root, dir).listFiles(File::isFile);
+            if (files == null) {
+                System.err.println("Skipping missing directory: " + new File(root, dir).getAbsolutePath());
+                continue;
+            }
+            for (File file : files) {
+                paths.add(dir + "/" + file.getName());
+            }
+        }
+        paths.sort(null);
+
+        int count = write(output, root, paths);
+        System.out.println("Packed " + count + " assets into " + output.getAbsolutePath());
+    }
+
+    static int write(File output, File root, List<String> paths) throws IOException {
+        List<byte[]> contents = new ArrayList<>();
+        long headerSize = 8;
+        for (String path : paths) {
+            contents.add(Files.readAllBytes(new File(root, path).toPath()));
+            headerSize += 2 + path.getBytes(StandardCharsets.UTF_8).length + 8 + 4 + AssetPack.HASH_LENGTH;
+        }
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream((int) headerSize);
+        try (DataOutputStream out = new DataOutputStream(header)) {
+            out.writeInt(AssetPack.MAGIC);
+            out.writeInt(paths.size());
+            long offset = headerSize;
+            for (int i = 0; i < paths.size(); i++) {
+                byte[] path = paths.get(i).getBytes(StandardCharsets.UTF_8);
+                out.writeShort(path.length);
+                out.write(path);
+                out.writeLong(offset);
+                out.writeInt(contents.get(i).length);
+                out.write(sha256(contents.get(i)));
+                offset += contents.get(i).length;
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(output.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.wrap(header.toByteArray()));
+            for (byte[] content : contents) {
+                channel.write(ByteBuffer.wrap(content));
+            }
+        }
+        return paths.size();
+    }
+
+    private static byte[] sha256(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Product image paths, loaded once from a manifest (assets.properties on the classpath, or the file
+ * named by the asset.manifest system property) into a dense array indexed by product ID.
+ * Each product lists a primary image followed by its detail images; the card, thumbnail and detail
+ * sizes are derived from these by ThumbnailCache.
+ */
+public final class AssetRegistry {
+    private static final String DEFAULT_MANIFEST = "assets.properties";
+    private static final int MAX_DENSE_ID = 10_000_000;
+
+    private static volatile AssetRegistry instance;
+
+    private final List<String>[] pathsByProduct;
+    private final Set<String> allPaths;
+
+    private AssetRegistry(List<String>[] pathsByProduct) {
+        this.pathsByProduct = pathsByProduct;
+        Set<String> paths = new HashSet<>();
+        for (List<String> productPaths : pathsByProduct) {
+            if (productPaths != null) {
+                paths.addAll(productPaths);
+            }
+        }
+        this.allPaths = paths;
+    }
+
+    public static AssetRegistry getInstance() {
+        AssetRegistry registry = instance;
+        if (registry == null) {
+            synchronized (AssetRegistry.class) {
+                registry = instance;
+                if (registry == null) {
+                    registry = load();
+                    instance = registry;
+                }
+            }
+        }
+        return registry;
+    }
+
+    /**
+     * Image paths for a product, primary image first. Returns a shared immutable list (empty for
+     * products without images), so lookups allocate nothing.
+     */
+    public List<String> getImagePaths(int productId) {
+        if (productId < 0 || productId >= pathsByProduct.length || pathsByProduct[productId] == null) {
+            return Collections.emptyList();
+        }
+        return pathsByProduct[productId];
+    }
+
+    /** Whether path is listed in the manifest; only such paths are served over HTTP. */
+    public boolean isRegistered(String path) {
+        return allPaths.contains(path);
+    }
+
+    public String getPrimaryImage(int productId) {
+        List<String> paths = getImagePaths(productId);
+        return paths.isEmpty() ? null : paths.get(0);
+    }
+
+    private static AssetRegistry load() {
+        Properties manifest = new Properties();
+        String override = System.getProperty("asset.manifest");
+        try (InputStream in = override != null
+                ? new FileInputStream(new File(override))
+                : AssetRegistry.class.getClassLoader().getResourceAsStream(DEFAULT_MANIFEST)) {
+            if (in == null) {
+                System.out.println("Asset manifest not found: " + DEFAULT_MANIFEST);
+            } else {
+                manifest.load(in);
+            }
+        } catch (IOException e) {
+            System.out.println("Could not read asset manifest: " + e.getMessage());
+        }
+
+        int maxId = -1;
+        for (String key : manifest.stringPropertyNames()) {
+            int id = productIdOf(key);
+            if (id > MAX_DENSE_ID) {
+                System.out.println("Ignoring asset entry with out-of-range product ID: " + key);
+            } else {
+                maxId = Math.max(maxId, id);
+            }
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"}) // Generic array creation; every element is a List<String>
+        List<String>[] pathsByProduct = new List[maxId + 1];
+        for (int id = 0; id <= maxId; id++) {
+            String primary = manifest.getProperty(id + ".primary");
+            String details = manifest.getProperty(id + ".detail");
+            if (primary == null && details == null) {
+                continue;
+            }
+            List<String> paths = new ArrayList<>();
+            if (primary != null && !primary.isBlank()) {
+                paths.add(primary.trim());
+            }
+            if (details != null) {
+                for (String path : details.split(",")) {
+                    if (!path.isBlank()) {
+                        paths.add(path.trim());
+                    }
+                }
+            }
+            pathsByProduct[id] = Collections.unmodifiableList(paths);
+        }
+        return new AssetRegistry(pathsByProduct);
+    }
+
+    private static int productIdOf(String key) {
+        int dot = key.indexOf('.');
+        try {
+            return Integer.parseInt(dot < 0 ? key : key.substring(0, dot));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
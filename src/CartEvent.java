@@ -0,0 +1,22 @@
+/**
+ * Describes a single change to the current user's cart. index is the item's row in
+ * DataManager.getCartItems() (for REMOVED, the row it occupied before removal); it is -1 for
+ * CLEARED and RELOADED, which replace the whole cart.
+ */
+public class CartEvent {
+    public enum Type { ADDED, UPDATED, REMOVED, CLEARED, RELOADED }
+
+    private final Type type;
+    private final int index;
+    private final CartItem item;
+
+    public CartEvent(Type type, int index, CartItem item) {
+        this.type = type;
+        this.index = index;
+        this.item = item;
+    }
+
+    public Type getType() { return type; }
+    public int getIndex() { return index; }
+    public CartItem getItem() { return item; }
+}
@@ -1,14 +1,15 @@
 public class CartItem {
     private Product product;
     public int quantity;
+    int row = -1; // Index in its session's cart list, kept by DataManager so events never search for it
 
     public CartItem(Product product, int quantity) {
         this.product = product;
         this.quantity = quantity;
     }
 
-    public double getTotalPrice() {
-        return product.getPrice() * quantity;
+    public long getTotalCents() {
+        return product.getPriceCents() * quantity;
     }
 
     // Getters and setters
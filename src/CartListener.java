@@ -0,0 +1,4 @@
+/** Receives cart changes from DataManager; called on the thread that changed the cart, normally the EDT. */
+public interface CartListener {
+    void cartChanged(CartEvent event);
+}
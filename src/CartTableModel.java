@@ -0,0 +1,57 @@
+import javax.swing.table.AbstractTableModel;
+import java.util.List;
+
+/**
+ * Table model backed directly by DataManager's cart list. Rows are formatted only when JTable asks
+ * for them, and each cart change fires a single row insert/update/delete instead of rebuilding the table.
+ */
+public class CartTableModel extends AbstractTableModel implements CartListener {
+    private static final String[] COLUMNS = {"Product", "Price", "Qty", "Subtotal"};
+
+    private final List<CartItem> items;
+
+    public CartTableModel(DataManager dataManager) {
+        this.items = dataManager.getCartItems();
+        dataManager.addCartListener(this);
+    }
+
+    public CartItem getItemAt(int row) {
+        return items.get(row);
+    }
+
+    @Override
+    public void cartChanged(CartEvent event) {
+        switch (event.getType()) {
+            case ADDED -> fireTableRowsInserted(event.getIndex(), event.getIndex());
+            case UPDATED -> fireTableRowsUpdated(event.getIndex(), event.getIndex());
+            case REMOVED -> fireTableRowsDeleted(event.getIndex(), event.getIndex());
+            case CLEARED, RELOADED -> fireTableDataChanged();
+        }
+    }
+
+    @Override
+    public int getRowCount() {
+        return items.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        CartItem item = items.get(row);
+        return switch (column) {
+            case 0 -> item.getProduct().getName();
+            case 1 -> Money.format(item.getProduct().getPriceCents());
+            case 2 -> item.getQuantity();
+            default -> Money.format(item.getTotalCents());
+        };
+    }
+}
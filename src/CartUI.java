@@ -1,14 +1,12 @@
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.List;
 
 public class CartUI extends JPanel {
     private JTable cartTable;
-    private DefaultTableModel cartTableModel;
+    private CartTableModel cartTableModel;
     private JLabel totalLabel;
     private JLabel itemCountLabel;
     private DataManager dataManager;
@@ -17,7 +15,9 @@ public class CartUI extends JPanel {
     public CartUI() {
         dataManager = DataManager.getInstance();
         initializeUI();
-        loadCart();
+        // The table model follows cart events itself; only the summary labels are refreshed here.
+        dataManager.addCartListener(event -> updateSummary());
+        updateSummary();
     }
 
     private void initializeUI() {
@@ -98,13 +98,7 @@ public class CartUI extends JPanel {
         ));
 
         // Cart table
-        String[] cartColumns = {"Product", "Price", "Qty", "Subtotal"};
-        cartTableModel = new DefaultTableModel(cartColumns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        cartTableModel = new CartTableModel(dataManager);
 
         cartTable = new JTable(cartTableModel);
         cartTable.setRowHeight(25);
@@ -158,23 +152,15 @@ public class CartUI extends JPanel {
         return panel;
     }
 
+    /** Re-syncs the whole table; cart changes made through DataManager already update it row by row. */
     public void loadCart() {
-        cartTableModel.setRowCount(0);
-        double total = dataManager.getCartTotal();
-        List<CartItem> cartItems = dataManager.getCartItems();
-
-        for (CartItem item : cartItems) {
-            Object[] row = {
-                    item.getProduct().getName(),
-                    String.format("$%.2f", item.getProduct().getPrice()),
-                    item.getQuantity(),
-                    String.format("$%.2f", item.getTotalPrice())
-            };
-            cartTableModel.addRow(row);
-        }
+        cartTableModel.fireTableDataChanged();
+        updateSummary();
+    }
 
-        totalLabel.setText(String.format("Total: $%.2f", total));
-        itemCountLabel.setText("Items in cart: " + cartItems.size());
+    private void updateSummary() {
+        totalLabel.setText("Total: " + Money.format(dataManager.getCartTotalCents()));
+        itemCountLabel.setText("Items in cart: " + dataManager.getCartItems().size());
     }
 
     private void updateQuantity() {
@@ -184,23 +170,19 @@ public class CartUI extends JPanel {
             return;
         }
 
-        String productName = (String) cartTableModel.getValueAt(selectedRow, 0);
-        CartItem item = dataManager.getCartItems().stream()
-                .filter(ci -> ci.getProduct().getName().equals(productName))
-                .findFirst()
-                .orElse(null);
+        CartItem item = cartTableModel.getItemAt(selectedRow);
 
         if (item != null) {
+            int productId = item.getProduct().getProductId();
             String input = JOptionPane.showInputDialog(this,
-                    "Enter new quantity for " + productName + ":",
+                    "Enter new quantity for " + item.getProduct().getName() + ":",
                     item.getQuantity());
 
             if (input != null) {
                 try {
                     int newQuantity = Integer.parseInt(input);
                     if (newQuantity > 0) {
-                        item.setQuantity(newQuantity);
-                        loadCart();
+                        dataManager.updateQuantity(productId, newQuantity);
                         JOptionPane.showMessageDialog(this, "Quantity updated successfully!");
                     } else {
                         JOptionPane.showMessageDialog(this, "Quantity must be greater than 0.");
@@ -222,26 +204,16 @@ public class CartUI extends JPanel {
                 return;
             }
 
-            String productName = (String) cartTableModel.getValueAt(selectedRow, 0);
-            removeFromCart(productName);
+            removeFromCart(cartTableModel.getItemAt(selectedRow).getProduct().getProductId());
         }
     }
 
-    private void removeFromCart(String productName) {
-        int index = -1;
-        List<CartItem> cartItems = dataManager.getCartItems();
-        for (int i = 0; i < cartItems.size(); i++) {
-            if (cartItems.get(i).getProduct().getName().equals(productName)) {
-                index = i;
-                break;
-            }
-        }
-
-        if (index != -1) {
-            dataManager.removeFromCart(index);
+    private void removeFromCart(int productId) {
+        CartItem item = dataManager.getCartItem(productId);
+        if (item != null) {
+            dataManager.removeProductFromCart(productId);
             JOptionPane.showMessageDialog(this,
-                    String.format("❌ Removed %s from cart!", productName));
-            loadCart();
+                    String.format("❌ Removed %s from cart!", item.getProduct().getName()));
         }
     }
 
@@ -258,37 +230,41 @@ public class CartUI extends JPanel {
                 JOptionPane.QUESTION_MESSAGE);
 
         if (result == JOptionPane.YES_OPTION) {
-            dataManager.clearCart();
+            dataManager.clearCartAsync().whenComplete((cleared, error) -> {
+                if (error != null || !cleared) {
+                    JOptionPane.showMessageDialog(this, "Failed to clear the saved cart.", "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            });
             JOptionPane.showMessageDialog(this, "🗑️ Cart cleared!");
-            loadCart();
         }
     }
 
     private void checkout() {
-        double total = dataManager.getCartTotal();
+        String total = Money.format(dataManager.getCartTotalCents());
         String orderSummary = String.format(
                 "Order Summary:\n\n" +
                         "Items: %d\n" +
-                        "Total: $%.2f\n\n" +
+                        "Total: %s\n\n" +
                         "Proceed with checkout?",
                 dataManager.getCartItems().size(), total);
-        if (DataManager.getInstance().checkout()) {
-            JOptionPane.showMessageDialog(null, "Checkout successful!");
-        } else {
-            JOptionPane.showMessageDialog(null, "Checkout failed!", "Error", JOptionPane.ERROR_MESSAGE);
-        }
         int result = JOptionPane.showConfirmDialog(this,
                 orderSummary,
                 "Checkout Confirmation - 💳",
                 JOptionPane.YES_NO_OPTION);
 
         if (result == JOptionPane.YES_OPTION) {
-            dataManager.clearCart();
-            loadCart();
-            JOptionPane.showMessageDialog(this,
-                    "🎉 Order placed successfully!\nThank you for your purchase!",
-                    "Order Confirmed",
-                    JOptionPane.INFORMATION_MESSAGE);
+            setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+            dataManager.checkoutAsync().whenComplete((placed, error) -> {
+                setCursor(Cursor.getDefaultCursor());
+                if (error == null && placed) {
+                    JOptionPane.showMessageDialog(this,
+                            "🎉 Order placed successfully!\nThank you for your purchase!",
+                            "Order Confirmed",
+                            JOptionPane.INFORMATION_MESSAGE);
+                } else {
+                    JOptionPane.showMessageDialog(this, "Checkout failed!", "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            });
         }
     }
 
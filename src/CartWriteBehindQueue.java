@@ -0,0 +1,444 @@
+import javax.swing.SwingUtilities;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind buffer for cart_product rows. Every change records the absolute quantity for a
+ * (Cart_ID, P_ID) pair, so repeated changes to the same row coalesce into one pending write.
+ * Pending writes are flushed as one JDBC batch when the queue reaches batchSize or when the
+ * oldest pending write is older than the flush interval. Pending writes are striped by Cart_ID, so
+ * shoppers enqueueing concurrently rarely wait on the same lock.
+ * If a batch fails, each cart is retried in its own transaction and then each row on its own, so one bad
+ * row cannot hold back everyone else's writes; a row that keeps failing is dropped after maxAttempts
+ * flushes. At most maxPending writes are held, so the queue cannot grow without bound while the
+ * database is unreachable: when it is full, background callers wait for a flush, while the event
+ * dispatch thread never blocks and has new rows refused instead (setQuantity and remove return false),
+ * so the caller can leave its in-memory cart unchanged.
+ */
+public class CartWriteBehindQueue {
+    private final ConnectionPool pool;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final int maxAttempts = Integer.getInteger("cart.writeBehind.maxAttempts", 5);
+    private final int maxPending = Integer.getInteger("cart.writeBehind.maxPending", 10_000);
+
+    private final List<Map<Long, PendingWrite>> stripes; // Indexed by Cart_ID; each stripe is its own lock
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger(); // Taken by the running flush; may come back on failure
+    private final Set<Integer> flushingCarts = ConcurrentHashMap.newKeySet(); // Carts with rows in inFlight
+    private final Object flushLock = new Object();
+    private final ScheduledExecutorService flusher;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(); // At most one extra flush task queued
+    private volatile boolean shutdown;
+
+    // Metrics
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong writtenRows = new AtomicLong();
+    private final AtomicLong coalescedWrites = new AtomicLong();
+    private final AtomicLong droppedWrites = new AtomicLong();
+    private volatile long lastFlushLagMillis;
+
+    public CartWriteBehindQueue(ConnectionPool pool, int batchSize, long flushIntervalMillis) {
+        this.pool = pool;
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.stripes = newStripes(Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 4));
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "cart-write-behind");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /** Queues the row's new quantity; false if the queue is full or shut down and the write was refused. */
+    public boolean setQuantity(int cartId, int productId, int quantity) {
+        return enqueue(new PendingWrite(cartId, productId, quantity, System.nanoTime(), 0));
+    }
+
+    /** Queues the row's deletion; false if the queue is full or shut down and the write was refused. */
+    public boolean remove(int cartId, int productId) {
+        return enqueue(new PendingWrite(cartId, productId, 0, System.nanoTime(), 0));
+    }
+
+    private static List<Map<Long, PendingWrite>> newStripes(int count) {
+        List<Map<Long, PendingWrite>> stripes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            stripes.add(new LinkedHashMap<>());
+        }
+        return stripes;
+    }
+
+    private Map<Long, PendingWrite> stripeFor(int cartId) {
+        return stripes.get((cartId * 0x9E3779B9 >>> 16) & (stripes.size() - 1));
+    }
+
+    private boolean enqueue(PendingWrite write) {
+        if (shutdown) {
+            System.err.println("Cart write queue is shut down; refusing write for product " + write.productId);
+            return false;
+        }
+        if (isFull()) {
+            if (SwingUtilities.isEventDispatchThread()) {
+                scheduleFlush(); // The UI must not wait on JDBC; a new row is refused below if still full
+            } else {
+                flushQuietly(); // Back-pressure: the caller waits for the backlog instead of growing it
+            }
+        }
+        int queued;
+        Map<Long, PendingWrite> pending = stripeFor(write.cartId);
+        synchronized (pending) {
+            PendingWrite previous = pending.get(write.key());
+            if (previous == null && isFull()) {
+                droppedWrites.incrementAndGet();
+                System.err.println("Cart write queue is full; refusing write for cart " + write.cartId
+                        + ", product " + write.productId);
+                return false;
+            }
+            if (previous != null) {
+                // Keep the original enqueue time so the lag reflects the oldest unflushed change.
+                write = new PendingWrite(write.cartId, write.productId, write.quantity, previous.enqueuedAtNanos, 0);
+                coalescedWrites.incrementAndGet();
+            }
+            pending.put(write.key(), write);
+            queued = previous == null ? depth.incrementAndGet() : depth.get();
+        }
+        if (queued >= batchSize) {
+            scheduleFlush();
+        }
+        return true;
+    }
+
+    // Counts the rows the running flush holds, since any of them can be re-queued.
+    private boolean isFull() {
+        return depth.get() + inFlight.get() >= maxPending;
+    }
+
+    // Queues one flush on the background thread unless one is already waiting to run.
+    private void scheduleFlush() {
+        if (!flushScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            flusher.execute(() -> {
+                flushScheduled.set(false); // Writes queued from here on need a flush of their own
+                flushQuietly();
+            });
+        } catch (RejectedExecutionException e) {
+            flushScheduled.set(false); // Shut down meanwhile; shutdown() drains the queue itself
+        }
+    }
+
+    /** Whether any change for cartId is still waiting to be written, e.g. re-queued after a failed flush. */
+    public boolean hasPendingWrites(int cartId) {
+        Map<Long, PendingWrite> pending = stripeFor(cartId);
+        synchronized (pending) {
+            for (PendingWrite write : pending.values()) {
+                if (write.cartId == cartId) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes every pending change on the calling thread. Returns once all writes queued before the call
+     * have reached the database; throws the first failure if any did not, after re-queueing or dropping them.
+     */
+    public void flush() throws SQLException {
+        synchronized (flushLock) {
+            List<PendingWrite> batch = new ArrayList<>();
+            for (Map<Long, PendingWrite> pending : stripes) {
+                synchronized (pending) {
+                    for (PendingWrite write : pending.values()) {
+                        flushingCarts.add(write.cartId); // Before the rows leave the stripe; see flush(int)
+                    }
+                    batch.addAll(pending.values());
+                    inFlight.addAndGet(pending.size()); // Before depth drops, so isFull never undercounts
+                    depth.addAndGet(-pending.size());
+                    pending.clear();
+                }
+            }
+            if (batch.isEmpty()) return;
+            try {
+                writeFlushed(batch);
+            } finally {
+                inFlight.set(0); // Every row is written, dropped or back in the stripes by now
+                flushingCarts.clear();
+            }
+        }
+    }
+
+    /**
+     * Writes only cartId's pending changes, e.g. before its rows are read back at login, so a caller never
+     * waits for other carts' backlog. Waits for a running flush only if that flush holds some of cartId's
+     * rows. Returns false if some of them are still waiting for a retry afterwards.
+     */
+    public boolean flush(int cartId) {
+        if (!hasPendingWrites(cartId) && !flushingCarts.contains(cartId)) {
+            return true;
+        }
+        synchronized (flushLock) {
+            List<PendingWrite> batch = new ArrayList<>();
+            Map<Long, PendingWrite> pending = stripeFor(cartId);
+            synchronized (pending) {
+                for (Iterator<PendingWrite> it = pending.values().iterator(); it.hasNext(); ) {
+                    PendingWrite write = it.next();
+                    if (write.cartId == cartId) {
+                        batch.add(write);
+                        it.remove();
+                    }
+                }
+                flushingCarts.add(cartId);
+                inFlight.addAndGet(batch.size());
+                depth.addAndGet(-batch.size());
+            }
+            try {
+                if (!batch.isEmpty()) {
+                    writeFlushed(batch);
+                }
+            } catch (SQLException e) {
+                System.err.println("Failed to flush cart writes for cart " + cartId + ": " + e.getMessage());
+            } finally {
+                inFlight.set(0);
+                flushingCarts.clear();
+            }
+        }
+        return !hasPendingWrites(cartId);
+    }
+
+    // Writes a batch taken from the stripes; see flush().
+    private void writeFlushed(List<PendingWrite> batch) throws SQLException {
+        long oldest = batch.get(0).enqueuedAtNanos;
+        for (PendingWrite write : batch) {
+            oldest = Math.min(oldest, write.enqueuedAtNanos);
+        }
+        int written = batch.size();
+        SQLException failure = null;
+        try {
+            writeBatch(batch);
+        } catch (SQLException e) {
+            Result result = writeIsolated(batch);
+            written = result.written;
+            failure = result.failure; // Null if every row went through on its own
+        }
+        lastFlushLagMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest);
+        flushCount.incrementAndGet();
+        writtenRows.addAndGet(written);
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (SQLException e) {
+            System.err.println("Failed to flush cart writes: " + e.getMessage());
+        }
+    }
+
+    private void writeBatch(List<PendingWrite> batch) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            writeRows(conn, batch);
+        }
+    }
+
+    // Writes rows in one transaction on conn.
+    private void writeRows(Connection conn, List<PendingWrite> rows) throws SQLException {
+        String upsertSql = "INSERT INTO cart_product (Cart_ID, P_ID, Quantity) VALUES (?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE Quantity = VALUES(Quantity)";
+        String deleteSql = "DELETE FROM cart_product WHERE Cart_ID = ? AND P_ID = ?";
+
+        conn.setAutoCommit(false);
+        try (PreparedStatement upsertStmt = conn.prepareStatement(upsertSql);
+             PreparedStatement deleteStmt = conn.prepareStatement(deleteSql)) {
+            boolean hasUpserts = false;
+            boolean hasDeletes = false;
+            for (PendingWrite write : rows) {
+                if (write.quantity > 0) {
+                    upsertStmt.setInt(1, write.cartId);
+                    upsertStmt.setInt(2, write.productId);
+                    upsertStmt.setInt(3, write.quantity);
+                    upsertStmt.addBatch();
+                    hasUpserts = true;
+                } else {
+                    deleteStmt.setInt(1, write.cartId);
+                    deleteStmt.setInt(2, write.productId);
+                    deleteStmt.addBatch();
+                    hasDeletes = true;
+                }
+            }
+            if (hasUpserts) upsertStmt.executeBatch();
+            if (hasDeletes) deleteStmt.executeBatch();
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Retries a failed batch one cart at a time, and the rows of a failing cart one at a time. Rows that
+     * fail on a working connection count an attempt; if the connection itself is lost, the remaining rows
+     * are re-queued without one, since they never got a fair try.
+     */
+    private Result writeIsolated(List<PendingWrite> batch) {
+        Map<Integer, List<PendingWrite>> byCart = new LinkedHashMap<>();
+        for (PendingWrite write : batch) {
+            byCart.computeIfAbsent(write.cartId, id -> new ArrayList<>()).add(write);
+        }
+        List<List<PendingWrite>> carts = new ArrayList<>(byCart.values());
+        Result result = new Result();
+        int cart = 0;
+        int row = 0; // Next untried row of carts.get(cart) once it is being retried row by row
+        try (Connection conn = pool.getConnection()) {
+            for (; cart < carts.size(); cart++, row = 0) {
+                List<PendingWrite> rows = carts.get(cart);
+                try {
+                    writeRows(conn, rows);
+                    result.written += rows.size();
+                    continue;
+                } catch (SQLException e) {
+                    if (!conn.isValid(2)) throw e;
+                }
+                for (; row < rows.size(); row++) {
+                    PendingWrite write = rows.get(row);
+                    try {
+                        writeRows(conn, Collections.singletonList(write));
+                        result.written++;
+                    } catch (SQLException e) {
+                        if (!conn.isValid(2)) throw e;
+                        result.fail(e);
+                        retryOrDrop(write, e);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            result.fail(e);
+            if (cart < carts.size()) {
+                List<PendingWrite> current = carts.get(cart);
+                requeue(current.subList(row, current.size()));
+                for (int i = cart + 1; i < carts.size(); i++) {
+                    requeue(carts.get(i));
+                }
+            }
+        }
+        return result;
+    }
+
+    private void retryOrDrop(PendingWrite write, SQLException e) {
+        if (write.attempts + 1 >= maxAttempts) {
+            droppedWrites.incrementAndGet();
+            System.err.println("Dropping cart write for cart " + write.cartId + ", product " + write.productId
+                    + " (quantity " + write.quantity + ") after " + maxAttempts + " attempts: " + e.getMessage());
+            return;
+        }
+        requeue(Collections.singletonList(new PendingWrite(write.cartId, write.productId, write.quantity,
+                write.enqueuedAtNanos, write.attempts + 1)));
+    }
+
+    /**
+     * Puts failed writes back unless a newer change for the same row arrived in the meantime. Every cart
+     * change, clearing included, is queued here, so a pending newer write is always what supersedes a
+     * failed one and a stale row is never brought back. Nothing is dropped here: isFull counted these rows
+     * while they were in flight, so putting them back cannot take the queue past maxPending.
+     */
+    private void requeue(List<PendingWrite> batch) {
+        for (PendingWrite write : batch) {
+            Map<Long, PendingWrite> pending = stripeFor(write.cartId);
+            synchronized (pending) {
+                if (pending.containsKey(write.key())) {
+                    continue;
+                }
+                pending.put(write.key(), write);
+                depth.incrementAndGet();
+            }
+        }
+    }
+
+    /** Drains every pending write and stops the background flusher. */
+    public void shutdown() {
+        shutdown = true;
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(flushIntervalMillis * 2, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+        if (getQueueDepth() > 0) {
+            System.err.println("Cart write queue closed with " + getQueueDepth() + " unflushed writes!");
+        }
+    }
+
+    // Metrics
+    public int getQueueDepth() {
+        return depth.get();
+    }
+
+    /** Age of the oldest change that has not reached the database yet, in milliseconds. */
+    public long getFlushLagMillis() {
+        long oldest = Long.MAX_VALUE;
+        for (Map<Long, PendingWrite> pending : stripes) {
+            synchronized (pending) {
+                for (PendingWrite write : pending.values()) {
+                    oldest = Math.min(oldest, write.enqueuedAtNanos);
+                }
+            }
+        }
+        return oldest == Long.MAX_VALUE ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest);
+    }
+
+    public long getLastFlushLagMillis() { return lastFlushLagMillis; }
+    public long getFlushCount() { return flushCount.get(); }
+    public long getWrittenRows() { return writtenRows.get(); }
+    public long getCoalescedWrites() { return coalescedWrites.get(); }
+    public long getDroppedWrites() { return droppedWrites.get(); }
+
+    private static final class PendingWrite {
+        final int cartId;
+        final int productId;
+        final int quantity; // 0 means delete the row
+        final long enqueuedAtNanos;
+        final int attempts; // Failed flushes so far
+
+        PendingWrite(int cartId, int productId, int quantity, long enqueuedAtNanos, int attempts) {
+            this.cartId = cartId;
+            this.productId = productId;
+            this.quantity = quantity;
+            this.enqueuedAtNanos = enqueuedAtNanos;
+            this.attempts = attempts;
+        }
+
+        long key() {
+            return ((long) cartId << 32) | (productId & 0xFFFFFFFFL);
+        }
+    }
+
+    private static final class Result {
+        int written;
+        SQLException failure; // First failure, if any
+
+        void fail(SQLException e) {
+            if (failure == null) failure = e;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of the product catalog. DataManager publishes a new snapshot on every refresh
+ * instead of mutating the current one, so readers on any thread can hold on to a snapshot without
+ * locking and never see a half-loaded catalog.
+ */
+public final class Catalog {
+    static final Catalog EMPTY = new Catalog(new Product[0], null, Sales.NONE);
+
+    private final Product[] products;
+    private final IntObjectMap<Product> index;
+    private final List<Product> view;
+    private final int[] sales; // Units sold per position, from order_product
+    private final int salesOrderId; // Highest Order_ID counted in sales
+    private final boolean salesRecounted; // sales were counted over all orders, not added to the previous snapshot's
+    private final Timestamp watermark; // Highest product.Updated_At reflected in this snapshot, or null if unknown
+    private final Map<Integer, Timestamp> recentUpdates; // P_ID -> Updated_At of the rows the last refresh read
+    private final int maxProductId; // 0 when empty
+
+    /** Takes ownership of products; the array must not be modified afterwards. sales must hold totals, not changes. */
+    Catalog(Product[] products, Timestamp watermark, Sales sales) {
+        this.products = products;
+        this.index = new IntObjectMap<>(products.length);
+        for (Product product : products) {
+            index.put(product.getProductId(), product);
+        }
+        this.view = Collections.unmodifiableList(Arrays.asList(products));
+        this.sales = salesFor(products, sales.byProduct);
+        this.salesOrderId = sales.lastOrderId;
+        this.salesRecounted = true;
+        this.watermark = watermark;
+        this.recentUpdates = Collections.emptyMap();
+        this.maxProductId = maxProductId(products);
+    }
+
+    private Catalog(Product[] products, IntObjectMap<Product> index, int[] sales, int salesOrderId,
+                    boolean salesRecounted, Timestamp watermark, Map<Integer, Timestamp> recentUpdates) {
+        this.products = products;
+        this.index = index;
+        this.view = Collections.unmodifiableList(Arrays.asList(products));
+        this.sales = sales;
+        this.salesOrderId = salesOrderId;
+        this.salesRecounted = salesRecounted;
+        this.watermark = watermark;
+        this.recentUpdates = recentUpdates;
+        this.maxProductId = maxProductId(products);
+    }
+
+    private static int maxProductId(Product[] products) {
+        int max = 0;
+        for (Product product : products) {
+            max = Math.max(max, product.getProductId());
+        }
+        return max;
+    }
+
+    private static int[] salesFor(Product[] products, Map<Integer, Integer> salesById) {
+        int[] sales = new int[products.length];
+        if (!salesById.isEmpty()) {
+            for (int i = 0; i < products.length; i++) {
+                sales[i] = salesById.getOrDefault(products[i].getProductId(), 0);
+            }
+        }
+        return sales;
+    }
+
+    /**
+     * Returns a new snapshot in which changed products replace the ones with the same ID (keeping
+     * their position), products with new IDs are appended and products whose IDs are in removed are
+     * dropped. Unchanged Product instances, and so their cached images, are shared with this snapshot.
+     * Sales are either added to the current counts or replace them, as sales says. Returns this snapshot
+     * itself if that would change nothing, so an empty refresh rebuilds no index.
+     */
+    Catalog withChanges(List<Product> changed, Set<Integer> removed, Timestamp watermark,
+                        Map<Integer, Timestamp> recentUpdates, Sales sales) {
+        if (changed.isEmpty() && removed.isEmpty()) {
+            int[] newSales = sales.incremental ? addSales(products, this.sales.clone(), sales.byProduct)
+                    : salesFor(products, sales.byProduct);
+            return Arrays.equals(newSales, this.sales) ? this
+                    : new Catalog(products, index, newSales, sales.lastOrderId, !sales.incremental, watermark, recentUpdates);
+        }
+        IntObjectMap<Product> newIndex = index.copy();
+        List<Product> added = new ArrayList<>();
+        for (Product product : changed) {
+            if (newIndex.put(product.getProductId(), product) == null) {
+                added.add(product);
+            }
+        }
+        for (int productId : removed) {
+            newIndex.remove(productId);
+        }
+        Product[] newProducts = new Product[products.length + added.size()];
+        int[] newSales = new int[newProducts.length]; // Counts move with their products; added ones start at 0
+        int count = 0;
+        for (int i = 0; i < products.length; i++) {
+            Product current = newIndex.get(products[i].getProductId());
+            if (current != null) {
+                newSales[count] = this.sales[i];
+                newProducts[count++] = current;
+            }
+        }
+        for (Product product : added) {
+            if (newIndex.containsKey(product.getProductId())) {
+                newProducts[count++] = product;
+            }
+        }
+        if (count != newProducts.length) {
+            newProducts = Arrays.copyOf(newProducts, count);
+            newSales = Arrays.copyOf(newSales, count);
+        }
+        newSales = sales.incremental ? addSales(newProducts, newSales, sales.byProduct) : salesFor(newProducts, sales.byProduct);
+        return new Catalog(newProducts, newIndex, newSales, sales.lastOrderId, !sales.incremental, watermark, recentUpdates);
+    }
+
+    private static int[] addSales(Product[] products, int[] sales, Map<Integer, Integer> addedById) {
+        if (!addedById.isEmpty()) {
+            for (int i = 0; i < products.length; i++) {
+                sales[i] += addedById.getOrDefault(products[i].getProductId(), 0);
+            }
+        }
+        return sales;
+    }
+
+    public int size() {
+        return products.length;
+    }
+
+    public Product get(int productId) {
+        return index.get(productId);
+    }
+
+    public Product getAt(int position) {
+        return products[position];
+    }
+
+    /** Units of the product at position sold so far; the popularity signal for suggestions and sorting. */
+    public int getSales(int position) {
+        return sales[position];
+    }
+
+    /** Products in load order, as a read-only list backed by the snapshot. */
+    public List<Product> getProducts() {
+        return view;
+    }
+
+    Timestamp getWatermark() {
+        return watermark;
+    }
+
+    /** Highest Order_ID whose units are included in the sales counts. */
+    int getSalesOrderId() {
+        return salesOrderId;
+    }
+
+    /** Whether the sales counts were recounted over all orders rather than added to the previous snapshot's. */
+    boolean isSalesRecounted() {
+        return salesRecounted;
+    }
+
+    /** Updated_At of productId as read by the refresh that produced this snapshot, or null if it read no such row. */
+    Timestamp getRecentUpdate(int productId) {
+        return recentUpdates.get(productId);
+    }
+
+    int getMaxProductId() {
+        return maxProductId;
+    }
+
+    /** Units sold per P_ID: totals over every order up to lastOrderId, or if incremental only the orders after the snapshot's. */
+    static final class Sales {
+        static final Sales NONE = new Sales(Collections.emptyMap(), 0, false);
+
+        final Map<Integer, Integer> byProduct;
+        final int lastOrderId;
+        final boolean incremental;
+
+        Sales(Map<Integer, Integer> byProduct, int lastOrderId, boolean incremental) {
+            this.byProduct = byProduct;
+            this.lastOrderId = lastOrderId;
+            this.incremental = incremental;
+        }
+    }
+}
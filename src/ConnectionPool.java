@@ -0,0 +1,415 @@
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Bounded JDBC connection pool shared by DataManager, LoginPanel and RegistrationPanel.
+ * Connections handed out are proxies; closing one returns the physical connection to the pool.
+ * Settings come from system properties (db.url, db.user, db.password, db.pool.*) so the pool
+ * can also be pointed at an embedded database.
+ */
+public class ConnectionPool implements DataSource {
+    private static final String DEFAULT_URL = "jdbc:mysql://localhost:3306/e_commerce";
+    private static final String DEFAULT_USER = "root";
+    private static final String DEFAULT_PASSWORD = "Password";
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private static volatile ConnectionPool instance;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeoutMillis;
+    private final long borrowTimeoutMillis;
+
+    private final Deque<IdleConnection> idle = new ArrayDeque<>();
+    private final Semaphore permits;
+    private final AtomicInteger openCount = new AtomicInteger();
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed;
+
+    // Metrics
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong totalBorrowWaitNanos = new AtomicLong();
+    private final AtomicLong maxBorrowWaitNanos = new AtomicLong();
+    private final AtomicLong borrowTimeouts = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+
+    public ConnectionPool(String url, String user, String password,
+                          int minSize, int maxSize, long idleTimeoutMillis, long borrowTimeoutMillis) {
+        if (maxSize < 1 || minSize < 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.permits = new Semaphore(maxSize, true);
+
+        if (url.startsWith("jdbc:mysql:")) {
+            try {
+                Class.forName("com.mysql.cj.jdbc.Driver");
+            } catch (ClassNotFoundException e) {
+                System.err.println("MySQL JDBC Driver not found: " + e.getMessage());
+            }
+        }
+
+        evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, idleTimeoutMillis / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+
+        fillToMinimum();
+    }
+
+    public static ConnectionPool getInstance() {
+        ConnectionPool pool = instance;
+        if (pool == null) {
+            synchronized (ConnectionPool.class) {
+                pool = instance;
+                if (pool == null) {
+                    pool = new ConnectionPool(
+                            System.getProperty("db.url", DEFAULT_URL),
+                            System.getProperty("db.user", DEFAULT_USER),
+                            System.getProperty("db.password", DEFAULT_PASSWORD),
+                            Integer.getInteger("db.pool.minSize", 2),
+                            Integer.getInteger("db.pool.maxSize", 10),
+                            Long.getLong("db.pool.idleTimeoutMs", 60_000L),
+                            Long.getLong("db.pool.borrowTimeoutMs", 5_000L));
+                    instance = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                borrowTimeouts.incrementAndGet();
+                throw new SQLTimeoutException("Timed out after " + borrowTimeoutMillis
+                        + " ms waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            Connection physical = takeValidIdle();
+            if (physical == null) {
+                physical = openPhysical();
+            }
+            recordBorrowWait(System.nanoTime() - start);
+            return wrap(physical);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pool credentials are fixed at construction");
+    }
+
+    private Connection takeValidIdle() {
+        while (true) {
+            IdleConnection entry;
+            synchronized (idle) {
+                entry = idle.pollFirst();
+            }
+            if (entry == null) {
+                return null;
+            }
+            if (isValid(entry.connection)) {
+                return entry.connection;
+            }
+            validationFailures.incrementAndGet();
+            closePhysical(entry.connection);
+        }
+    }
+
+    private boolean isValid(Connection connection) {
+        try {
+            return !connection.isClosed() && connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Connection openPhysical() throws SQLException {
+        Connection connection = DriverManager.getConnection(url, user, password);
+        openCount.incrementAndGet();
+        return connection;
+    }
+
+    private void closePhysical(Connection connection) {
+        openCount.decrementAndGet();
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.err.println("Failed to close pooled connection: " + e.getMessage());
+        }
+    }
+
+    private void release(Connection physical) {
+        try {
+            if (closed || physical.isClosed()) {
+                closePhysical(physical);
+                return;
+            }
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            synchronized (idle) {
+                idle.addFirst(new IdleConnection(physical, System.currentTimeMillis()));
+            }
+        } catch (SQLException e) {
+            closePhysical(physical);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        synchronized (idle) {
+            // Oldest entries sit at the tail because released connections are pushed to the head.
+            Iterator<IdleConnection> it = idle.descendingIterator();
+            while (it.hasNext() && openCount.get() > minSize) {
+                IdleConnection entry = it.next();
+                if (entry.lastUsed > cutoff) {
+                    break;
+                }
+                it.remove();
+                evictedCount.incrementAndGet();
+                closePhysical(entry.connection);
+            }
+        }
+        fillToMinimum();
+    }
+
+    private void fillToMinimum() {
+        while (!closed && openCount.get() < minSize) {
+            try {
+                Connection connection = openPhysical();
+                synchronized (idle) {
+                    idle.addLast(new IdleConnection(connection, System.currentTimeMillis()));
+                }
+            } catch (SQLException e) {
+                System.err.println("Failed to open pooled connection: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private void recordBorrowWait(long waitNanos) {
+        borrowCount.incrementAndGet();
+        totalBorrowWaitNanos.addAndGet(waitNanos);
+        maxBorrowWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    private Connection wrap(Connection physical) {
+        AtomicBoolean returned = new AtomicBoolean(); // close may race with isClosed on another thread
+        Connection[] self = new Connection[1];
+        InvocationHandler handler = (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "close":
+                    if (returned.compareAndSet(false, true)) {
+                        release(physical);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned.get() || physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + physical + "]";
+                default:
+                    if (returned.get()) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                    return delegate(proxy, physical, method, args, self[0], null);
+            }
+        };
+        self[0] = (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, handler);
+        return self[0];
+    }
+
+    /**
+     * Calls method on target for the proxy standing in for it, keeping the physical connection out of
+     * callers' hands: unwrap answers with the proxy itself when it implements the interface, getConnection
+     * returns the pooled proxy, and statements, metadata and result sets come back wrapped the same way.
+     * Closing anything reachable from a pooled connection can therefore never close the physical one.
+     */
+    private static Object delegate(Object proxy, Object target, Method method, Object[] args,
+                                   Connection connection, Statement statement) throws Throwable {
+        String name = method.getName();
+        if (args != null && args.length == 1 && args[0] instanceof Class) {
+            Class<?> iface = (Class<?>) args[0];
+            if (name.equals("unwrap") && iface.isInstance(proxy)) {
+                return proxy;
+            }
+            if (name.equals("isWrapperFor") && iface.isInstance(proxy)) {
+                return true;
+            }
+        }
+        if (args == null) {
+            if (name.equals("getConnection") && method.getReturnType() == Connection.class) {
+                return connection;
+            }
+            if (name.equals("getStatement") && target instanceof ResultSet) {
+                return statement;
+            }
+        }
+        Object result;
+        try {
+            result = method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+        if (result == null) {
+            return null;
+        }
+        Class<?> type = method.getReturnType();
+        if (type == Statement.class || type == PreparedStatement.class || type == CallableStatement.class
+                || type == DatabaseMetaData.class) {
+            return wrapChild(type, result, connection, null);
+        }
+        if (type == ResultSet.class) {
+            // Result sets of a statement report that statement; metadata result sets report none.
+            return wrapChild(type, result, connection, proxy instanceof Statement ? (Statement) proxy : null);
+        }
+        return result;
+    }
+
+    private static Object wrapChild(Class<?> type, Object target, Connection connection, Statement statement) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return target.toString();
+                default:
+                    return delegate(proxy, target, method, args, connection, statement);
+            }
+        };
+        return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    public void shutdown() {
+        closed = true;
+        evictor.shutdownNow();
+        synchronized (idle) {
+            for (IdleConnection entry : idle) {
+                closePhysical(entry.connection);
+            }
+            idle.clear();
+        }
+        System.out.println("Connection pool closed!");
+    }
+
+    // Metrics
+    public long getBorrowCount() { return borrowCount.get(); }
+    public long getBorrowTimeouts() { return borrowTimeouts.get(); }
+    public long getValidationFailures() { return validationFailures.get(); }
+    public long getEvictedCount() { return evictedCount.get(); }
+    public int getTotalCount() { return openCount.get(); }
+    public int getActiveCount() { return maxSize - permits.availablePermits(); }
+    public int getIdleCount() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    public double getAverageBorrowWaitMillis() {
+        long count = borrowCount.get();
+        return count == 0 ? 0.0 : totalBorrowWaitNanos.get() / (count * 1_000_000.0);
+    }
+
+    public double getMaxBorrowWaitMillis() {
+        return maxBorrowWaitNanos.get() / 1_000_000.0;
+    }
+
+    // DataSource plumbing
+    @Override
+    public PrintWriter getLogWriter() { return DriverManager.getLogWriter(); }
+    @Override
+    public void setLogWriter(PrintWriter out) { DriverManager.setLogWriter(out); }
+    @Override
+    public void setLoginTimeout(int seconds) { DriverManager.setLoginTimeout(seconds); }
+    @Override
+    public int getLoginTimeout() { return DriverManager.getLoginTimeout(); }
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+    private static final class IdleConnection {
+        final Connection connection;
+        final long lastUsed;
+
+        IdleConnection(Connection connection, long lastUsed) {
+            this.connection = connection;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+
+/**
+ * Self-check for ConnectionPool against an embedded database: borrowing up to the limit and timing out
+ * beyond it, returning connections, never handing out the physical connection, dropping connections that
+ * fail validation, and evicting idle connections above the minimum.
+ *
+ * Usage: java -cp out:h2.jar ConnectionPoolCheck [url] [user] [password]
+ * Defaults: jdbc:h2:mem:poolcheck;DB_CLOSE_DELAY=-1 with user "sa" (jdbc:derby:memory:poolcheck;create=true
+ * works too). Exits with status 1 if any check fails.
+ */
+public class ConnectionPoolCheck {
+    private static int failures;
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0] : "jdbc:h2:mem:poolcheck;DB_CLOSE_DELAY=-1";
+        String user = args.length > 1 ? args[1] : "sa";
+        String password = args.length > 2 ? args[2] : "";
+
+        // The driver's own connection class, so unwrap can be asked for the physical connection below.
+        Class<? extends Connection> driverClass;
+        try (Connection direct = DriverManager.getConnection(url, user, password)) {
+            driverClass = direct.getClass();
+        }
+
+        ConnectionPool pool = new ConnectionPool(url, user, password, 1, 2, 1000, 200);
+        try {
+            check(pool.getTotalCount() == 1 && pool.getIdleCount() == 1, "pool opens minSize connections");
+
+            // Borrow up to the limit, then time out.
+            Connection first = pool.getConnection();
+            Connection second = pool.getConnection();
+            check(pool.getActiveCount() == 2, "two connections borrowed");
+            try {
+                pool.getConnection().close();
+                check(false, "borrow beyond maxSize times out");
+            } catch (SQLTimeoutException e) {
+                check(pool.getBorrowTimeouts() == 1, "borrow beyond maxSize times out");
+            }
+
+            // Nothing reachable from a pooled connection is the physical connection.
+            Statement statement = first.createStatement();
+            DatabaseMetaData metaData = first.getMetaData();
+            check(statement.getConnection() == first, "Statement.getConnection returns the pooled connection");
+            check(metaData.getConnection() == first, "DatabaseMetaData.getConnection returns the pooled connection");
+            check(first.unwrap(Connection.class) == first, "unwrap(Connection.class) returns the pooled connection");
+            check(first.isWrapperFor(Connection.class), "isWrapperFor(Connection.class)");
+            statement.close();
+
+            // Return a connection; a second close is a no-op and the proxy is dead afterwards.
+            first.close();
+            first.close();
+            check(first.isClosed(), "returned connection reports closed");
+            check(pool.getActiveCount() == 1 && pool.getIdleCount() == 1, "returned connection is idle again");
+            try {
+                first.createStatement();
+                check(false, "returned connection rejects calls");
+            } catch (SQLException e) {
+                check(true, "returned connection rejects calls");
+            }
+
+            // A physical connection that died while idle is dropped on the next borrow.
+            Connection physical = second.unwrap(driverClass);
+            second.close();
+            physical.close();
+            long failed = pool.getValidationFailures();
+            Connection third = pool.getConnection();
+            check(!third.isClosed(), "borrow skips a dead idle connection");
+            check(pool.getValidationFailures() == failed + 1, "dead idle connection counted as a validation failure");
+
+            // Idle connections above minSize are evicted once idleTimeout has passed.
+            Connection fourth = pool.getConnection();
+            third.close();
+            fourth.close();
+            check(pool.getTotalCount() == 2, "two connections open before eviction");
+            Thread.sleep(2500);
+            check(pool.getTotalCount() == 1 && pool.getEvictedCount() >= 1, "idle connections evicted down to minSize");
+        } finally {
+            pool.shutdown();
+        }
+
+        System.out.println(failures == 0 ? "All checks passed" : failures + " check(s) failed");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static void check(boolean passed, String description) {
+        System.out.println((passed ? "PASS " : "FAIL ") + description);
+        if (!passed) {
+            failures++;
+        }
+    }
+}
@@ -1,92 +1,433 @@
+import javax.swing.*;
+import java.security.SecureRandom;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 public class DataManager {
-    private static DataManager instance;
-    private List<Product> products;
-    private List<CartItem> cartItems;
-    private User currentUser;
-    private Connection conn;
+    private final AtomicReference<Indexes> published = new AtomicReference<>(Indexes.EMPTY); // Catalog snapshot plus its indexes
+    private final Session desktopSession = new Session("desktop"); // Used by the Swing UI; never expires
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong lastSessionSweep = new AtomicLong(System.currentTimeMillis());
+    private final SecureRandom sessionIds = new SecureRandom();
+    private ConnectionPool pool;
+    private CartWriteBehindQueue cartWrites;
+    private final ExecutorService dbExecutor = createDbExecutor();
+    private final List<Consumer<Catalog>> catalogListeners = new CopyOnWriteArrayList<>();
+    private CompletableFuture<Catalog> catalogLoaded; // Completes once the initial streaming load has finished
+
+    private volatile Boolean hasFacetColumns; // Detected on the first catalog query
+    private volatile long lastSalesRecountMillis; // When sales were last counted over all orders
+
+    private static final int CATALOG_PAGE_SIZE = Integer.getInteger("catalog.pageSize", 500);
+    private static final long SALES_RECOUNT_INTERVAL_MS = Long.getLong("catalog.salesRecountMinutes", 60L) * 60_000;
+    private static final long CATALOG_REFRESH_LAG_MS = Long.getLong("catalog.refreshLagSeconds", 5L) * 1000;
+    private static final long SESSION_IDLE_TIMEOUT_MS = Long.getLong("session.idleTimeoutMinutes", 30L) * 60_000;
 
     private DataManager() {
         initializeDatabaseConnection();
         initializeData();
     }
 
+    // Initialization-on-demand holder: the JVM creates the instance exactly once, on first use, from any thread.
+    private static final class Holder {
+        static final DataManager INSTANCE = new DataManager();
+    }
+
     public static DataManager getInstance() {
-        if (instance == null) {
-            instance = new DataManager();
-        }
-        return instance;
+        return Holder.INSTANCE;
     }
 
     private void initializeDatabaseConnection() {
-        String url = "jdbc:mysql://localhost:3306/e_commerce";
-        String user = "root";
-        String password = "Password";
-
-        try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            conn = DriverManager.getConnection(url, user, password);
+        pool = ConnectionPool.getInstance();
+        cartWrites = new CartWriteBehindQueue(pool,
+                Integer.getInteger("cart.writeBehind.batchSize", 50),
+                Long.getLong("cart.writeBehind.flushIntervalMs", 500L));
+        if (pool.getTotalCount() > 0) {
             System.out.println("Connected to the database!");
-        } catch (Exception e) {
+        } else {
             System.out.println("Database connection failed!");
-            e.printStackTrace();
         }
     }
 
     private void initializeData() {
-        products = new ArrayList<>();
-        cartItems = new ArrayList<>();
-        loadProductsFromDatabase();
+        // Stream the catalog in the background; the shop shows each partial snapshot as it is published.
+        catalogLoaded = CompletableFuture.supplyAsync(() -> {
+            Catalog loaded = loadProductsFromDatabase(partial -> publishCatalog(published.get(), partial));
+            if (loaded != null) {
+                publishCatalog(published.get(), loaded);
+            }
+            return getCatalog();
+        }, dbExecutor);
     }
 
-    private void loadProductsFromDatabase() {
-        String query = "SELECT P_ID, Name, Price, Description FROM product";
+    /**
+     * Builds the indexes of snapshot and then publishes snapshot and indexes together, so readers never see
+     * a catalog next to indexes of another one. Returns false, publishing nothing, if expected is no longer
+     * the published state: another refresh won with data at least as new.
+     */
+    private boolean publishCatalog(Indexes expected, Catalog snapshot) {
+        Indexes built = buildIndexes(expected, snapshot);
+        if (!published.compareAndSet(expected, built)) {
+            return false;
+        }
+        Catalog previous = expected.catalog;
+        List<Product> added = new ArrayList<>();
+        for (Product product : snapshot.getProducts()) {
+            if (previous.get(product.getProductId()) == null) {
+                added.add(product);
+            }
+        }
+        ThumbnailCache.prefetch(added, ThumbnailCache.Size.CARD);
+        SwingUtilities.invokeLater(() -> {
+            for (Consumer<Catalog> listener : catalogListeners) {
+                listener.accept(snapshot);
+            }
+        });
+        return true;
+    }
 
-        try (Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(query)) {
+    /**
+     * The indexes of snapshot, patched from previous's when snapshot has the same products at the same
+     * positions (a delta refresh that added and removed nothing): search postings are rebuilt only if a
+     * name or description changed, facet values only if a brand, gender or family changed, and the price
+     * and popularity orders move just the repriced or resold positions. Suggestions are ranked by sales
+     * but rebuilt only for new names or recounted sales, so between recounts they keep the last ranking.
+     * Anything else gets a full build.
+     */
+    private static Indexes buildIndexes(Indexes previous, Catalog snapshot) {
+        Catalog old = previous.catalog;
+        int count = snapshot.size();
+        boolean samePositions = count == old.size() && count > 0;
+        for (int i = 0; samePositions && i < count; i++) {
+            samePositions = snapshot.getAt(i).getProductId() == old.getAt(i).getProductId();
+        }
+        if (!samePositions) {
+            FacetIndex facets = FacetIndex.build(snapshot);
+            return new Indexes(snapshot, SearchIndex.build(snapshot, previous.search), Typeahead.build(snapshot),
+                    facets, SortIndex.build(snapshot, facets));
+        }
 
-            while (rs.next()) {
-                int productId = rs.getInt("P_ID");
-                String name = rs.getString("Name");
-                double price = rs.getDouble("Price");
-                String description = rs.getString("Description");
+        boolean renamed = false;
+        boolean redescribed = false;
+        boolean refaceted = false;
+        BitSet repriced = new BitSet(count);
+        BitSet resold = new BitSet(count);
+        for (int i = 0; i < count; i++) {
+            Product product = snapshot.getAt(i);
+            Product before = old.getAt(i);
+            if (product != before) {
+                renamed |= !Objects.equals(product.getName(), before.getName());
+                redescribed |= !Objects.equals(product.getDescription(), before.getDescription());
+                refaceted |= !FacetIndex.sameFacets(product, before);
+                if (product.getPriceCents() != before.getPriceCents()) {
+                    repriced.set(i);
+                }
+            }
+            if (snapshot.getSales(i) != old.getSales(i)) {
+                resold.set(i);
+            }
+        }
+
+        SearchIndex search = renamed || redescribed ? SearchIndex.build(snapshot, previous.search)
+                : previous.search.withCatalog(snapshot);
+        Typeahead typeahead = renamed || (snapshot.isSalesRecounted() && !resold.isEmpty()) ? Typeahead.build(snapshot)
+                : previous.typeahead;
+        FacetIndex facets = refaceted ? FacetIndex.build(snapshot) : previous.facets.withPrices(snapshot, repriced);
+        SortIndex sorts = renamed ? SortIndex.build(snapshot, facets)
+                : previous.sorts.withChanges(snapshot, facets, !repriced.isEmpty() || refaceted, resold);
+        return new Indexes(snapshot, search, typeahead, facets, sorts);
+    }
+
+    /** Registers a listener that receives every newly published catalog snapshot on the EDT. */
+    public void addCatalogListener(Consumer<Catalog> listener) {
+        catalogListeners.add(listener);
+    }
 
-                List<String> imagePaths = getImagePathsForProduct(productId);
-                products.add(new Product(productId, name, price, description, imagePaths));
+    public void removeCatalogListener(Consumer<Catalog> listener) {
+        catalogListeners.remove(listener);
+    }
+
+    /**
+     * Builds a complete snapshot off to the side; returns null if the load failed so the current one is kept.
+     * Rows are read in keyset pages (P_ID > last ID seen), so the driver never buffers more than one page.
+     * If onProgress is not null it receives partial snapshots: after the first page and then whenever the
+     * catalog has doubled, which keeps the total copying linear in the catalog size.
+     */
+    private Catalog loadProductsFromDatabase(Consumer<Catalog> onProgress) {
+        List<Product> products = new ArrayList<>();
+        try (Connection conn = pool.getConnection()) {
+            String query = "SELECT " + productColumns(conn) + " FROM product WHERE P_ID > ? ORDER BY P_ID LIMIT ?";
+            // Read the watermark first: rows changed during the full load are then picked up again by the next delta.
+            Timestamp watermark = readWatermark(conn);
+            Catalog.Sales sales = readSalesCounts(conn);
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setFetchSize(CATALOG_PAGE_SIZE);
+                int lastId = Integer.MIN_VALUE;
+                int published = 0;
+                int rows;
+                do {
+                    stmt.setInt(1, lastId);
+                    stmt.setInt(2, CATALOG_PAGE_SIZE);
+                    rows = 0;
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            Product product = readProduct(rs);
+                            products.add(product);
+                            lastId = product.getProductId();
+                            rows++;
+                        }
+                    }
+                    if (onProgress != null && rows == CATALOG_PAGE_SIZE && products.size() >= 2 * published) {
+                        published = products.size();
+                        onProgress.accept(new Catalog(products.toArray(new Product[0]), null, sales));
+                    }
+                } while (rows == CATALOG_PAGE_SIZE);
             }
+            return new Catalog(products.toArray(new Product[0]), watermark, sales);
         } catch (SQLException e) {
             System.out.println("Failed to load products from database!");
             e.printStackTrace();
+            return null;
         }
     }
 
-    private List<String> getImagePathsForProduct(int productId) {
-        return switch (productId) {
-            case 1 -> List.of("image/dior_sauvage.png", "image_description/suavage.jpg", "image_description/suavaged.jpg");
-            case 2 -> List.of("image/chanel_no5.jpg", "image_description/channel.jpg", "image_description/channeld.jpg");
-            case 3 -> List.of("image/ysl_libre.jpg", "image_description/ysl.jpg", "image_description/ysld.jpg");
-            case 4 -> List.of("image/versace_eros.jpg", "image_description/Eros_versace.jpg", "image_description/Eros_versached.jpg");
-            case 5 -> List.of("image_description/gucici.jpg", "image_description/gucici.jpg", "image_description/guccid.jpg");
-            case 6 -> List.of("image_description/armani.jpg", "image_description/armani.jpg", "image_description/armanid.jpg");
-            case 7 -> List.of("image/tomford_noir.jpg", "image_description/noir.jpg", "image_description/noird.jpg");
-            case 8 -> List.of("image/prada_luna.jpg", "image_description/luna.jpg", "image_description/lunad.jpg");
-            case 9 -> List.of("image/hermes_terre.jpg", "image_description/terre.jpg", "image_description/terred.jpg");
-            case 10 -> List.of("image/le_male.jpg", "image_description/jpg.jpg", "image_description/jpgd.jpg");
-            default -> new ArrayList<>(); // Empty list for unknown products
-        };
+    private Product readProduct(ResultSet rs) throws SQLException {
+        int productId = rs.getInt("P_ID");
+        String name = rs.getString("Name");
+        long priceCents = Money.toCents(rs.getBigDecimal("Price"));
+        String description = rs.getString("Description");
+
+        List<String> imagePaths = AssetRegistry.getInstance().getImagePaths(productId);
+        if (!hasFacetColumns) {
+            return new Product(productId, name, priceCents, description, imagePaths);
+        }
+        return new Product(productId, name, priceCents, description, imagePaths,
+                rs.getString("Brand"), rs.getString("Gender"), rs.getString("Family"));
     }
 
-    public User login(String email, String password) {
-        if (conn == null) {
-            System.err.println("Database connection is not available!");
+    // Brand, Gender and Family are optional product columns; without them only the price filter has data.
+    private String productColumns(Connection conn) throws SQLException {
+        if (hasFacetColumns == null) {
+            try (ResultSet rs = conn.getMetaData().getColumns(conn.getCatalog(), null, "product", "Family")) {
+                hasFacetColumns = rs.next();
+            }
+        }
+        return hasFacetColumns ? "P_ID, Name, Price, Description, Brand, Gender, Family" : "P_ID, Name, Price, Description";
+    }
+
+    // Units sold per P_ID over all orders; none if the totals cannot be read. Orders after the highest
+    // Order_ID seen up front are left for the next refresh, so none is counted twice.
+    private Catalog.Sales readSalesCounts(Connection conn) {
+        try {
+            int lastOrderId = readLastOrderId(conn);
+            Map<Integer, Integer> sales = readSales(conn, 0, lastOrderId);
+            lastSalesRecountMillis = System.currentTimeMillis();
+            return new Catalog.Sales(sales, lastOrderId, false);
+        } catch (SQLException e) {
+            System.out.println("Failed to load sales counts: " + e.getMessage());
+            return Catalog.Sales.NONE;
+        }
+    }
+
+    /**
+     * Sales for a delta refresh of current: only the order_product rows of orders after the ones it already
+     * counts, so a poll costs as much as the new orders rather than all of them. Every
+     * catalog.salesRecountMinutes (default 60) the totals are recounted instead, which also picks up orders
+     * that committed after a later Order_ID had been counted.
+     */
+    private Catalog.Sales readNewSales(Connection conn, Catalog current) {
+        if (System.currentTimeMillis() - lastSalesRecountMillis >= SALES_RECOUNT_INTERVAL_MS) {
+            return readSalesCounts(conn);
+        }
+        try {
+            int lastOrderId = readLastOrderId(conn);
+            if (lastOrderId <= current.getSalesOrderId()) {
+                return new Catalog.Sales(Collections.emptyMap(), current.getSalesOrderId(), true);
+            }
+            return new Catalog.Sales(readSales(conn, current.getSalesOrderId(), lastOrderId), lastOrderId, true);
+        } catch (SQLException e) {
+            System.out.println("Failed to load new sales: " + e.getMessage());
+            return new Catalog.Sales(Collections.emptyMap(), current.getSalesOrderId(), true);
+        }
+    }
+
+    private int readLastOrderId(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(Order_ID) FROM order_product")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    // Units sold per P_ID in the orders with afterOrderId < Order_ID <= upToOrderId.
+    private Map<Integer, Integer> readSales(Connection conn, int afterOrderId, int upToOrderId) throws SQLException {
+        Map<Integer, Integer> sales = new HashMap<>();
+        String sql = "SELECT P_ID, SUM(Quantity) FROM order_product WHERE Order_ID > ? AND Order_ID <= ? GROUP BY P_ID";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, afterOrderId);
+            stmt.setInt(2, upToOrderId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    sales.put(rs.getInt(1), rs.getInt(2));
+                }
+            }
+        }
+        return sales;
+    }
+
+    // Returns null when product has no Updated_At column; refreshes then fall back to full reloads.
+    private Timestamp readWatermark(Connection conn) {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(Updated_At) FROM product")) {
+            return rs.next() ? rs.getTimestamp(1) : null;
+        } catch (SQLException e) {
+            System.out.println("Delta catalog refresh disabled: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Patches the current snapshot with the rows whose Updated_At is at or after its watermark minus
+     * catalog.refreshLagSeconds, so a row committed a little after others with an older timestamp is still
+     * read; rows read again with the Updated_At already applied are skipped. Deleted rows are found by
+     * comparing IDs whenever the row count or highest P_ID disagrees with the patched snapshot. Returns
+     * current itself if nothing changed, or null if a full reload is needed instead: no watermark, or rows
+     * exist that the window did not cover.
+     */
+    private Catalog loadCatalogChanges(Catalog current) {
+        try (Connection conn = pool.getConnection()) {
+            String query = "SELECT " + productColumns(conn) + ", Updated_At FROM product WHERE Updated_At >= ?";
+            List<Product> changed = new ArrayList<>();
+            Map<Integer, Timestamp> read = new HashMap<>();
+            Timestamp watermark = current.getWatermark();
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setTimestamp(1, new Timestamp(watermark.getTime() - CATALOG_REFRESH_LAG_MS));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        int productId = rs.getInt("P_ID");
+                        Timestamp updatedAt = rs.getTimestamp("Updated_At");
+                        read.put(productId, updatedAt);
+                        if (updatedAt.equals(current.getRecentUpdate(productId))) {
+                            continue; // Applied by the previous refresh
+                        }
+                        changed.add(readProduct(rs));
+                        if (updatedAt.after(watermark)) {
+                            watermark = updatedAt;
+                        }
+                    }
+                }
+            }
+
+            // Deletes leave no Updated_At behind; check the row count and highest ID against the patched snapshot.
+            int expectedCount = current.size();
+            int expectedMaxId = current.getMaxProductId();
+            for (Product product : changed) {
+                if (current.get(product.getProductId()) == null) {
+                    expectedCount++;
+                }
+                expectedMaxId = Math.max(expectedMaxId, product.getProductId());
+            }
+            Set<Integer> removed = Collections.emptySet();
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT COUNT(*), MAX(P_ID) FROM product")) {
+                if (rs.next() && (rs.getInt(1) != expectedCount || rs.getInt(2) != expectedMaxId)) {
+                    removed = findRemovedIds(conn, current, changed, expectedCount);
+                    if (removed == null) {
+                        return null;
+                    }
+                }
+            }
+            return current.withChanges(changed, removed, watermark, read, readNewSales(conn, current));
+        } catch (SQLException e) {
+            System.out.println("Delta catalog refresh failed: " + e.getMessage());
             return null;
         }
+    }
 
+    // IDs of current or changed that are no longer stored, or null if rows are stored that neither holds.
+    private Set<Integer> findRemovedIds(Connection conn, Catalog current, List<Product> changed, int expectedCount)
+            throws SQLException {
+        IntObjectMap<Boolean> stored = new IntObjectMap<>(Math.max(16, expectedCount));
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT P_ID FROM product")) {
+            while (rs.next()) {
+                stored.put(rs.getInt(1), Boolean.TRUE);
+            }
+        }
+        Set<Integer> removed = new HashSet<>();
+        for (Product product : current.getProducts()) {
+            if (!stored.containsKey(product.getProductId())) {
+                removed.add(product.getProductId());
+            }
+        }
+        for (Product product : changed) {
+            if (!stored.containsKey(product.getProductId())) {
+                removed.add(product.getProductId());
+            }
+        }
+        return stored.size() > expectedCount - removed.size() ? null : removed;
+    }
+
+    /**
+     * Brings the catalog up to date and swaps the result in; readers keep using the previous snapshot
+     * until then. Only changed rows are read when the product table tracks Updated_At, and nothing is
+     * rebuilt or published if none changed.
+     */
+    public Catalog refreshCatalog() {
+        Indexes current = published.get();
+        Catalog loaded = current.catalog.getWatermark() == null ? null : loadCatalogChanges(current.catalog);
+        if (loaded == null) {
+            loaded = loadProductsFromDatabase(null);
+        }
+        if (loaded != null && loaded != current.catalog) {
+            publishCatalog(current, loaded);
+        }
+        return getCatalog();
+    }
+
+    /** Like refreshCatalog(), but loads on the database executor and completes on the EDT. */
+    public CompletableFuture<Catalog> refreshCatalogAsync() {
+        return submit(this::refreshCatalog, snapshot -> snapshot);
+    }
+
+    public User login(String email, String password) {
+        return login(desktopSession, email, password);
+    }
+
+    /** Signs session in, replacing its cart with the user's stored cart. Returns null if the credentials are wrong. */
+    public User login(Session session, String email, String password) {
+        User user = authenticate(email, password);
+        if (user != null) {
+            setCurrentUser(session, user);
+        }
+        return user;
+    }
+
+    private User authenticate(String email, String password) {
         String sql = "SELECT User_ID, Name, Email FROM customer WHERE Email = ? AND Password = ?";
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, email);
             stmt.setString(2, password); // Note: Use hashed passwords in production
             try (ResultSet rs = stmt.executeQuery()) {
@@ -94,9 +435,7 @@ public class DataManager {
                     int userId = rs.getInt("User_ID");
                     String name = rs.getString("Name");
                     String userEmail = rs.getString("Email");
-                    User user = new User(userId, name, userEmail, password);
-                    setCurrentUser(user);
-                    return user;
+                    return new User(userId, name, userEmail, password);
                 }
             }
         } catch (SQLException e) {
@@ -107,163 +446,329 @@ public class DataManager {
     }
 
     public void setCurrentUser(User user) {
-        this.currentUser = user;
-        if (currentUser != null) {
-            loadCartFromDatabase();
-        } else {
-            cartItems.clear();
-        }
+        setCurrentUser(desktopSession, user);
     }
 
-    private void loadCartFromDatabase() {
-        if (currentUser == null || conn == null) return;
-        cartItems.clear();
-        try {
-            String cartSql = "SELECT Cart_ID FROM cart WHERE User_ID = ? ORDER BY Cart_ID DESC LIMIT 1";
-            try (PreparedStatement cartStmt = conn.prepareStatement(cartSql)) {
-                cartStmt.setInt(1, currentUser.getUserId());
-                try (ResultSet cartRs = cartStmt.executeQuery()) {
-                    if (cartRs.next()) {
-                        int cartId = cartRs.getInt("Cart_ID");
-                        loadCartItemsFromDatabase(cartId);
-                    }
+    public void setCurrentUser(Session session, User user) {
+        applySession(session, user, user == null ? null : fetchCart(user));
+    }
+
+    private void applySession(Session session, User user, CartState cart) {
+        synchronized (session) {
+            session.user = user;
+            session.cartId = cart == null ? -1 : cart.cartId;
+            session.cartItems.clear();
+            session.cartIndex.clear();
+            session.cartTotalCents = 0;
+            if (cart != null) {
+                for (CartItem item : cart.items) {
+                    appendCartItem(session, item);
                 }
             }
+            fireCartChanged(session, CartEvent.Type.RELOADED, -1, null);
+        }
+    }
+
+    // Reads the user's cart without touching any session, so it can run on any thread.
+    private CartState fetchCart(User user) {
+        CartState cart = new CartState();
+        try (Connection conn = pool.getConnection()) {
+            cart.cartId = findCartId(conn, user.getUserId());
+            if (cart.cartId != -1) {
+                cartWrites.flush(cart.cartId); // Only this cart's queued changes, e.g. from the user's last session
+                loadCartItemsFromDatabase(conn, cart.cartId, cart.items);
+            } else {
+                // Create the cart up front so later cart writes can be queued without a lookup.
+                cart.cartId = createCart(conn, user.getUserId());
+            }
         } catch (SQLException e) {
             System.err.println("Failed to load cart: " + e.getMessage());
             e.printStackTrace();
         }
+        return cart;
     }
 
-    private void loadCartItemsFromDatabase(int cartId) {
-        if (conn == null) return;
+    /**
+     * Reads the cart's rows. Product details come from the catalog, so cart rows share its Product instances
+     * and images; while the catalog is still streaming in, rows for products it has not reached yet are
+     * read by key instead of waiting for the whole load.
+     */
+    private void loadCartItemsFromDatabase(Connection conn, int cartId, List<CartItem> items) {
         try {
-            String sql = "SELECT cp.P_ID, cp.Quantity, p.Name, p.Price, p.Description " +
-                    "FROM cart_product cp JOIN product p ON cp.P_ID = p.P_ID WHERE cp.Cart_ID = ?";
+            List<int[]> rows = new ArrayList<>();
+            String sql = "SELECT P_ID, Quantity FROM cart_product WHERE Cart_ID = ?";
             try (PreparedStatement stmt = conn.prepareStatement(sql)) {
                 stmt.setInt(1, cartId);
                 try (ResultSet rs = stmt.executeQuery()) {
                     while (rs.next()) {
-                        int productId = rs.getInt("P_ID");
-                        int quantity = rs.getInt("Quantity");
-                        String name = rs.getString("Name");
-                        double price = rs.getDouble("Price");
-                        String description = rs.getString("Description");
-                        Product product = new Product(productId, name, price, description, getImagePathsForProduct(productId));
-                        cartItems.add(new CartItem(product, quantity));
+                        rows.add(new int[] {rs.getInt("P_ID"), rs.getInt("Quantity")});
                     }
                 }
             }
+
+            boolean complete = catalogLoaded.isDone(); // Checked first: the full catalog is published before it completes
+            Catalog catalog = getCatalog();
+            Map<Integer, Product> fetched = Collections.emptyMap();
+            if (!complete) {
+                List<Integer> missing = new ArrayList<>();
+                for (int[] row : rows) {
+                    if (catalog.get(row[0]) == null) missing.add(row[0]);
+                }
+                fetched = loadProductsById(conn, missing);
+            }
+            for (int[] row : rows) {
+                Product product = catalog.get(row[0]);
+                if (product == null) {
+                    product = fetched.get(row[0]);
+                }
+                if (product == null) {
+                    System.err.println("Skipping cart item for unknown product: " + row[0]);
+                    continue;
+                }
+                items.add(new CartItem(product, row[1]));
+            }
         } catch (SQLException e) {
             System.err.println("Failed to load cart items: " + e.getMessage());
             e.printStackTrace();
         }
     }
 
-    public void addToCart(Product product) {
-        if (currentUser == null) {
-            System.err.println("No user logged in!");
-            return;
+    // Reads the given products by primary key, e.g. cart rows the streaming catalog load has not reached yet.
+    private Map<Integer, Product> loadProductsById(Connection conn, List<Integer> productIds) throws SQLException {
+        Map<Integer, Product> products = new HashMap<>();
+        if (productIds.isEmpty()) {
+            return products;
         }
-
-        try {
-            // 1. Insert into cart and get generated Cart_ID
-            int cartId = -1;
-            String insertCartSql = "INSERT INTO cart (User_ID) VALUES (?)";
-            try (PreparedStatement cartStmt = conn.prepareStatement(insertCartSql, Statement.RETURN_GENERATED_KEYS)) {
-                cartStmt.setInt(1, currentUser.getUserId());
-                cartStmt.executeUpdate();
-
-                ResultSet generatedKeys = cartStmt.getGeneratedKeys();
-                if (generatedKeys.next()) {
-                    cartId = generatedKeys.getInt(1);
-                } else {
-                    throw new SQLException("Failed to retrieve generated Cart_ID.");
+        StringBuilder sql = new StringBuilder("SELECT ").append(productColumns(conn)).append(" FROM product WHERE P_ID IN (");
+        for (int i = 0; i < productIds.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(')');
+        try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < productIds.size(); i++) {
+                stmt.setInt(i + 1, productIds.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Product product = readProduct(rs);
+                    products.put(product.getProductId(), product);
                 }
             }
+        }
+        return products;
+    }
 
-            // 2. Check if product is already in memory cart
-            for (CartItem item : cartItems) {
-                if (item.getProduct().getProductId() == product.getProductId()) {
-                    item.setQuantity(item.getQuantity() + 1);
-                    // Update quantity in cart_product
-                    String updateSql = "UPDATE cart_product SET Quantity = ? WHERE Cart_ID = ? AND P_ID = ?";
-                    try (PreparedStatement updateStmt = conn.prepareStatement(updateSql)) {
-                        updateStmt.setInt(1, item.getQuantity());
-                        updateStmt.setInt(2, cartId);
-                        updateStmt.setInt(3, product.getProductId());
-                        updateStmt.executeUpdate();
-                    }
-                    return;
-                }
+    public void addToCart(Product product) {
+        addToCart(desktopSession, product);
+    }
+
+    public void addToCart(Session session, Product product) {
+        synchronized (session) {
+            if (session.user == null) {
+                System.err.println("No user logged in!");
+                return;
+            }
+
+            CartItem item = session.cartIndex.get(product.getProductId());
+            if (!persistQuantity(session, product.getProductId(), item == null ? 1 : item.getQuantity() + 1)) {
+                return; // Refused by a full write queue; the cart stays as it is stored
+            }
+            if (item != null) {
+                item.setQuantity(item.getQuantity() + 1);
+                session.cartTotalCents += product.getPriceCents();
+                fireCartChanged(session, CartEvent.Type.UPDATED, item.row, item);
+            } else {
+                item = new CartItem(product, 1);
+                appendCartItem(session, item);
+                fireCartChanged(session, CartEvent.Type.ADDED, item.row, item);
             }
+        }
+    }
 
-            // 3. Add product to in-memory cart
-            cartItems.add(new CartItem(product, 1));
+    public void updateQuantity(int productId, int quantity) {
+        updateQuantity(desktopSession, productId, quantity);
+    }
 
-            // 4. Insert into cart_product table
-            String insertCartProductSql = "INSERT INTO cart_product (Cart_ID, P_ID, Quantity) VALUES (?, ?, ?)";
-            try (PreparedStatement cpStmt = conn.prepareStatement(insertCartProductSql)) {
-                cpStmt.setInt(1, cartId);
-                cpStmt.setInt(2, product.getProductId());
-                cpStmt.setInt(3, 1); // default quantity is 1
-                cpStmt.executeUpdate();
+    public void updateQuantity(Session session, int productId, int quantity) {
+        synchronized (session) {
+            if (session.user == null) {
+                System.err.println("No user logged in!");
+                return;
             }
+            CartItem item = session.cartIndex.get(productId);
+            if (item == null || quantity <= 0) return;
+            if (!persistQuantity(session, productId, quantity)) return;
+            session.cartTotalCents += item.getProduct().getPriceCents() * (quantity - item.getQuantity());
+            item.setQuantity(quantity);
+            fireCartChanged(session, CartEvent.Type.UPDATED, item.row, item);
+        }
+    }
 
+    public CartItem getCartItem(int productId) {
+        return desktopSession.cartIndex.get(productId);
+    }
+
+    public CartItem getCartItem(Session session, int productId) {
+        synchronized (session) {
+            return session.cartIndex.get(productId);
+        }
+    }
+
+    // Queues the absolute quantity for the write-behind flusher, before the in-memory cart is changed.
+    // Returns false if the queue refused it, in which case the caller leaves the cart alone.
+    // Called with the session's monitor held.
+    private boolean persistQuantity(Session session, int productId, int quantity) {
+        if (session.cartId == -1) {
+            resolveCartLater(session);
+            return true; // Written with the rest of the cart once it exists
+        }
+        return cartWrites.setQuantity(session.cartId, productId, quantity);
+    }
+
+    /**
+     * Looks up (or creates) the signed-in user's cart on dbExecutor and then queues the whole in-memory
+     * cart into it. Only needed if the cart could not be loaded at login; the caller may be the EDT, so
+     * the lookup never runs on the calling thread. Called with the session's monitor held.
+     */
+    private void resolveCartLater(Session session) {
+        if (session.resolvingCart) return;
+        session.resolvingCart = true;
+        User user = session.user;
+        try {
+            dbExecutor.execute(() -> resolveCart(session, user));
+        } catch (RejectedExecutionException e) {
+            session.resolvingCart = false; // Shutting down; nothing is written any more
+        }
+    }
+
+    private void resolveCart(Session session, User user) {
+        int cartId = -1;
+        try (Connection conn = pool.getConnection()) {
+            cartId = findCartId(conn, user.getUserId());
+            if (cartId == -1) {
+                cartId = createCart(conn, user.getUserId());
+            }
         } catch (SQLException e) {
-            System.err.println("Failed to add to cart: " + e.getMessage());
-            e.printStackTrace();
+            System.err.println("Failed to resolve cart: " + e.getMessage());
+            e.printStackTrace(); // The next cart change tries again
+        }
+        synchronized (session) {
+            session.resolvingCart = false;
+            if (cartId == -1 || session.user != user || session.cartId != -1) return; // Switched user meanwhile
+            session.cartId = cartId;
+            for (CartItem item : session.cartItems) {
+                cartWrites.setQuantity(cartId, item.getProduct().getProductId(), item.getQuantity());
+            }
         }
     }
 
+    // Flushes cartId's writes; true if none of them are still waiting for a retry afterwards.
+    private boolean persistCart(int cartId) {
+        return cartWrites.flush(cartId);
+    }
+
     public void removeFromCart(int index) {
-        if (index >= 0 && index < cartItems.size()) {
-            CartItem item = cartItems.get(index);
-            try {
-                int cartId = getCurrentCartId();
-                if (cartId != -1) {
-                    String deleteSql = "DELETE FROM cart_product WHERE Cart_ID = ? AND P_ID = ?";
-                    try (PreparedStatement stmt = conn.prepareStatement(deleteSql)) {
-                        stmt.setInt(1, cartId);
-                        stmt.setInt(2, item.getProduct().getProductId());
-                        stmt.executeUpdate();
+        List<CartItem> items = desktopSession.cartItems;
+        if (index >= 0 && index < items.size()) {
+            removeProductFromCart(items.get(index).getProduct().getProductId());
+        }
+    }
+
+    public void removeProductFromCart(int productId) {
+        removeProductFromCart(desktopSession, productId);
+    }
+
+    public void removeProductFromCart(Session session, int productId) {
+        synchronized (session) {
+            CartItem item = session.cartIndex.get(productId);
+            if (item == null) return;
+            if (session.cartId != -1 && !cartWrites.remove(session.cartId, productId)) {
+                return; // Refused by a full write queue; the item stays, as it does in the database
+            }
+            session.cartIndex.remove(productId);
+            int index = item.row;
+            session.cartItems.remove(index);
+            for (int i = index; i < session.cartItems.size(); i++) {
+                session.cartItems.get(i).row = i; // The rows below moved up, as in the list itself
+            }
+            session.cartTotalCents -= item.getTotalCents();
+            fireCartChanged(session, CartEvent.Type.REMOVED, index, item);
+        }
+    }
+
+    // Adds item as the last row of session's cart. Called with the session's monitor held.
+    private static void appendCartItem(Session session, CartItem item) {
+        item.row = session.cartItems.size();
+        session.cartItems.add(item);
+        session.cartIndex.put(item.getProduct().getProductId(), item);
+        session.cartTotalCents += item.getTotalCents();
+    }
+
+    // Empties the in-memory cart and queues a delete for each of its rows. Anything added afterwards is
+    // queued behind those deletes, so it is never deleted by them. Items whose delete a full write queue
+    // refused stay in the cart; returns false if there were any.
+    private boolean clearCartItems(Session session) {
+        synchronized (session) {
+            List<CartItem> kept = new ArrayList<>();
+            if (session.cartId != -1) {
+                for (CartItem item : session.cartItems) {
+                    if (!cartWrites.remove(session.cartId, item.getProduct().getProductId())) {
+                        kept.add(item);
                     }
-                    cartItems.remove(index);
                 }
-            } catch (SQLException e) {
-                System.err.println("Failed to remove from cart: " + e.getMessage());
-                e.printStackTrace();
             }
+            session.cartItems.clear();
+            session.cartIndex.clear();
+            session.cartTotalCents = 0;
+            if (kept.isEmpty()) {
+                fireCartChanged(session, CartEvent.Type.CLEARED, -1, null);
+                return true;
+            }
+            for (CartItem item : kept) {
+                appendCartItem(session, item);
+            }
+            fireCartChanged(session, CartEvent.Type.RELOADED, -1, null);
+            return false;
+        }
+    }
+
+    public void addCartListener(CartListener listener) {
+        desktopSession.cartListeners.add(listener);
+    }
+
+    public void removeCartListener(CartListener listener) {
+        desktopSession.cartListeners.remove(listener);
+    }
+
+    private void fireCartChanged(Session session, CartEvent.Type type, int index, CartItem item) {
+        if (session.cartListeners.isEmpty()) return;
+        CartEvent event = new CartEvent(type, index, item);
+        for (CartListener listener : session.cartListeners) {
+            listener.cartChanged(event);
         }
     }
 
     public void clearCart() {
-        try {
-            int cartId = getCurrentCartId();
-            if (cartId != -1) {
-                String deleteItemsSql = "DELETE FROM cart_product WHERE Cart_ID = ?";
-                try (PreparedStatement stmt = conn.prepareStatement(deleteItemsSql)) {
-                    stmt.setInt(1, cartId);
-                    stmt.executeUpdate();
-                }
-                String deleteCartSql = "DELETE FROM cart WHERE Cart_ID = ?";
-                try (PreparedStatement stmt = conn.prepareStatement(deleteCartSql)) {
-                    stmt.setInt(1, cartId);
-                    stmt.executeUpdate();
-                }
-            }
-            cartItems.clear();
-        } catch (SQLException e) {
-            System.err.println("Failed to clear cart: " + e.getMessage());
-            e.printStackTrace();
+        clearCart(desktopSession);
+    }
+
+    /** Empties session's cart; returns false if the stored rows could not be deleted yet (they are retried). */
+    public boolean clearCart(Session session) {
+        int cartId;
+        boolean queued;
+        synchronized (session) {
+            cartId = session.cartId;
+            queued = clearCartItems(session);
+            if (session.user == null || cartId == -1) return true;
         }
+        return persistCart(cartId) && queued;
     }
 
-    private int getCurrentCartId() throws SQLException {
-        if (currentUser == null) return -1;
+    // Returns the user's most recent Cart_ID, or -1 if the user has no cart yet.
+    private int findCartId(Connection conn, int userId) throws SQLException {
         String sql = "SELECT Cart_ID FROM cart WHERE User_ID = ? ORDER BY Cart_ID DESC LIMIT 1";
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, currentUser.getUserId());
+            stmt.setInt(1, userId);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
                     return rs.getInt("Cart_ID");
@@ -273,13 +778,96 @@ public class DataManager {
         return -1;
     }
 
+    private int createCart(Connection conn, int userId) throws SQLException {
+        String insertCartSql = "INSERT INTO cart (User_ID) VALUES (?)";
+        try (PreparedStatement cartStmt = conn.prepareStatement(insertCartSql, Statement.RETURN_GENERATED_KEYS)) {
+            cartStmt.setInt(1, userId);
+            cartStmt.executeUpdate();
+
+            try (ResultSet generatedKeys = cartStmt.getGeneratedKeys()) {
+                if (generatedKeys.next()) {
+                    return generatedKeys.getInt(1);
+                }
+                throw new SQLException("Failed to retrieve generated Cart_ID.");
+            }
+        }
+    }
+
     public boolean checkout() {
-        if (currentUser == null) {
-            System.err.println("No user logged in!");
-            return false;
+        Order order = prepareOrder(desktopSession);
+        if (order == null) return false;
+        boolean placed = placeOrder(order);
+        if (placed) {
+            removeOrderedItems(desktopSession, order);
+        }
+        return placed;
+    }
+
+    /** Places session's cart as an order. The session stays locked throughout, so its cart cannot change meanwhile. */
+    public boolean checkout(Session session) {
+        synchronized (session) {
+            Order order = prepareOrder(session);
+            if (order == null) return false;
+            boolean placed = placeOrder(order);
+            if (placed) {
+                removeOrderedItems(session, order);
+            }
+            return placed;
+        }
+    }
+
+    /**
+     * Takes what order bought out of session's cart. Items added or increased after the order was prepared
+     * keep the difference; placeOrder took the same quantities out of the stored rows, and the quantities
+     * queued here agree with that whichever reaches the database first.
+     */
+    private void removeOrderedItems(Session session, Order order) {
+        synchronized (session) {
+            if (session.user == null || session.cartId != order.cartId) return; // Signed out or switched user meanwhile
+            for (CartItem ordered : order.items) {
+                int productId = ordered.getProduct().getProductId();
+                CartItem item = session.cartIndex.get(productId);
+                if (item == null) continue;
+                int remaining = item.getQuantity() - ordered.getQuantity();
+                if (remaining > 0) {
+                    updateQuantity(session, productId, remaining);
+                } else {
+                    removeProductFromCart(session, productId);
+                }
+            }
+        }
+    }
+
+    // Copies what checkout needs from the in-memory cart, so the order can be written on another thread.
+    private Order prepareOrder(Session session) {
+        synchronized (session) {
+            if (session.user == null) {
+                System.err.println("No user logged in!");
+                return null;
+            }
+            if (session.cartItems.isEmpty()) {
+                System.err.println("Cart is empty!");
+                return null;
+            }
+            Order order = new Order();
+            order.userId = session.user.getUserId();
+            order.cartId = session.cartId;
+            order.totalCents = session.cartTotalCents;
+            for (CartItem item : session.cartItems) {
+                order.items.add(new CartItem(item.getProduct(), item.getQuantity()));
+            }
+            return order;
         }
-        if (cartItems.isEmpty()) {
-            System.err.println("Cart is empty!");
+    }
+
+    private boolean placeOrder(Order order) {
+        Connection conn;
+        try {
+            cartWrites.flush(order.cartId); // So the stored rows hold the ordered quantities before they are taken out
+            conn = pool.getConnection();
+        } catch (SQLException e) {
+            System.err.println("Checkout failed: " + e.getMessage());
+            e.printStackTrace();
             return false;
         }
 
@@ -289,11 +877,10 @@ public class DataManager {
 
             // 1. Insert into order table and get generated Order_ID
             int orderId = -1;
-            double totalAmount = getCartTotal();
             String orderSql = "INSERT INTO `order` (Order_Amount, User_ID) VALUES (?, ?)";
             try (PreparedStatement orderStmt = conn.prepareStatement(orderSql, Statement.RETURN_GENERATED_KEYS)) {
-                orderStmt.setDouble(1, totalAmount);
-                orderStmt.setInt(2, currentUser.getUserId());
+                orderStmt.setBigDecimal(1, Money.toDecimal(order.totalCents));
+                orderStmt.setInt(2, order.userId);
                 orderStmt.executeUpdate();
 
                 try (ResultSet rs = orderStmt.getGeneratedKeys()) {
@@ -308,7 +895,7 @@ public class DataManager {
             // 2. Insert into order_product table
             String orderProductSql = "INSERT INTO order_product (Order_ID, P_ID, Quantity) VALUES (?, ?, ?)";
             try (PreparedStatement orderProductStmt = conn.prepareStatement(orderProductSql)) {
-                for (CartItem item : cartItems) {
+                for (CartItem item : order.items) {
                     orderProductStmt.setInt(1, orderId);
                     orderProductStmt.setInt(2, item.getProduct().getProductId());
                     orderProductStmt.setInt(3, item.getQuantity());
@@ -320,27 +907,16 @@ public class DataManager {
             // 3. Insert into payment table (excluding Type)
             String paymentSql = "INSERT INTO payment (Amount, User_ID, Order_ID) VALUES (?, ?, ?)";
             try (PreparedStatement paymentStmt = conn.prepareStatement(paymentSql, Statement.RETURN_GENERATED_KEYS)) {
-                paymentStmt.setDouble(1, totalAmount);
-                paymentStmt.setInt(2, currentUser.getUserId());
+                paymentStmt.setBigDecimal(1, Money.toDecimal(order.totalCents));
+                paymentStmt.setInt(2, order.userId);
                 paymentStmt.setInt(3, orderId);
                 paymentStmt.executeUpdate();
             }
 
-            // 4. Clear cart data from cart and cart_product
-            int cartId = getCurrentCartId();
-            if (cartId != -1) {
-                String deleteItemsSql = "DELETE FROM cart_product WHERE Cart_ID = ?";
-                try (PreparedStatement deleteItemsStmt = conn.prepareStatement(deleteItemsSql)) {
-                    deleteItemsStmt.setInt(1, cartId);
-                    deleteItemsStmt.executeUpdate();
-                }
-                String deleteCartSql = "DELETE FROM cart WHERE Cart_ID = ?";
-                try (PreparedStatement deleteCartStmt = conn.prepareStatement(deleteCartSql)) {
-                    deleteCartStmt.setInt(1, cartId);
-                    deleteCartStmt.executeUpdate();
-                }
+            // 4. Take the ordered quantities out of the user's cart_product rows
+            if (order.cartId != -1) {
+                removeOrderedRows(conn, order);
             }
-            cartItems.clear();
 
             // Commit transaction
             conn.commit();
@@ -361,39 +937,378 @@ public class DataManager {
             } catch (SQLException e) {
                 System.err.println("Failed to reset auto-commit: " + e.getMessage());
             }
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                System.err.println("Failed to release connection: " + e.getMessage());
+            }
+        }
+    }
+
+    // Deletes the rows the order used up and lowers the ones that were increased after it was prepared.
+    private void removeOrderedRows(Connection conn, Order order) throws SQLException {
+        String deleteSql = "DELETE FROM cart_product WHERE Cart_ID = ? AND P_ID = ? AND Quantity <= ?";
+        String updateSql = "UPDATE cart_product SET Quantity = Quantity - ? WHERE Cart_ID = ? AND P_ID = ? AND Quantity > ?";
+        try (PreparedStatement deleteStmt = conn.prepareStatement(deleteSql);
+             PreparedStatement updateStmt = conn.prepareStatement(updateSql)) {
+            for (CartItem item : order.items) {
+                deleteStmt.setInt(1, order.cartId);
+                deleteStmt.setInt(2, item.getProduct().getProductId());
+                deleteStmt.setInt(3, item.getQuantity());
+                deleteStmt.addBatch();
+                updateStmt.setInt(1, item.getQuantity());
+                updateStmt.setInt(2, order.cartId);
+                updateStmt.setInt(3, item.getProduct().getProductId());
+                updateStmt.setInt(4, item.getQuantity());
+                updateStmt.addBatch();
+            }
+            deleteStmt.executeBatch();
+            updateStmt.executeBatch();
+        }
+    }
+
+    public boolean emailExists(String email) {
+        String query = "SELECT COUNT(*) FROM customer WHERE Email = ?";
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            pstmt.setString(1, email);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getInt(1) > 0;
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error checking email existence: " + e.getMessage());
+        }
+        return false;
+    }
+
+    public boolean registerUser(String name, String email, String password) {
+        String query = "INSERT INTO customer (Name, Email, Password) VALUES (?, ?, ?)";
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            pstmt.setString(1, name);
+            pstmt.setString(2, email);
+            pstmt.setString(3, password); // Store plain text password
+            return pstmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            System.err.println("Error inserting user: " + e.getMessage());
+            e.printStackTrace();
+            return false;
         }
     }
 
-    public double getCartTotal() {
-        return cartItems.stream().mapToDouble(CartItem::getTotalPrice).sum();
+    // === Async commands ===
+    // Each command runs its JDBC work on dbExecutor and completes its future on the EDT, after applying
+    // any in-memory changes there. Cancelling the returned future interrupts the database work.
+
+    public CompletableFuture<User> loginAsync(String email, String password) {
+        return submit(() -> {
+            User user = authenticate(email, password);
+            if (user == null) return null;
+            return new Object[]{user, fetchCart(user)};
+        }, result -> {
+            if (result == null) return null;
+            User user = (User) result[0];
+            applySession(desktopSession, user, (CartState) result[1]);
+            return user;
+        });
+    }
+
+    /** Signs out immediately; the previous user's queued cart writes are flushed in the background. */
+    public CompletableFuture<Void> logoutAsync() {
+        int cartId = desktopSession.cartId;
+        applySession(desktopSession, null, null);
+        return submit(() -> {
+            if (cartId != -1) {
+                cartWrites.flush(cartId);
+            }
+            return null;
+        }, ignored -> null);
+    }
+
+    /**
+     * Empties the in-memory cart immediately and deletes the stored items in the background. The cart can
+     * be edited again right away: the deletes are queued before any later change.
+     */
+    public CompletableFuture<Boolean> clearCartAsync() {
+        int cartId = desktopSession.cartId;
+        boolean queued = clearCartItems(desktopSession);
+        if (desktopSession.user == null || cartId == -1) {
+            return CompletableFuture.completedFuture(true);
+        }
+        return submit(() -> persistCart(cartId), saved -> saved && queued);
+    }
+
+    public CompletableFuture<Boolean> checkoutAsync() {
+        Order order = prepareOrder(desktopSession);
+        if (order == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return submit(() -> placeOrder(order), placed -> {
+            if (placed) {
+                removeOrderedItems(desktopSession, order); // Keeps whatever was added while the order was placed
+            }
+            return placed;
+        });
+    }
+
+    public CompletableFuture<RegistrationResult> registerAsync(String name, String email, String password) {
+        return submit(() -> {
+            if (emailExists(email)) return RegistrationResult.EMAIL_EXISTS;
+            return registerUser(name, email, password) ? RegistrationResult.SUCCESS : RegistrationResult.FAILED;
+        }, result -> result);
+    }
+
+    private <R, T> CompletableFuture<T> submit(Callable<R> background, Function<R, T> onEdt) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task = dbExecutor.submit(() -> {
+            try {
+                R value = background.call();
+                SwingUtilities.invokeLater(() -> {
+                    if (result.isDone()) return; // Cancelled while the command was running
+                    try {
+                        result.complete(onEdt.apply(value));
+                    } catch (RuntimeException e) {
+                        result.completeExceptionally(e);
+                    }
+                });
+            } catch (Exception e) {
+                SwingUtilities.invokeLater(() -> result.completeExceptionally(e));
+            }
+        });
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                task.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    // Virtual threads when running on JDK 21+, otherwise a pool sized like the connection pool.
+    private static ExecutorService createDbExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threadCount = new AtomicInteger();
+            return Executors.newFixedThreadPool(Integer.getInteger("db.pool.maxSize", 10), r -> {
+                Thread t = new Thread(r, "db-command-" + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    public enum RegistrationResult { SUCCESS, EMAIL_EXISTS, FAILED }
+
+    private static final class CartState {
+        int cartId = -1;
+        final List<CartItem> items = new ArrayList<>();
+    }
+
+    private static final class Order {
+        int userId;
+        int cartId;
+        long totalCents;
+        final List<CartItem> items = new ArrayList<>();
+    }
+
+    public long getCartTotalCents() {
+        return desktopSession.cartTotalCents;
+    }
+
+    /** The current catalog snapshot; safe to read from any thread. */
+    public Catalog getCatalog() {
+        return published.get().catalog;
     }
 
     public List<Product> getProducts() {
-        return products;
+        return getCatalog().getProducts();
+    }
+
+    /** Ranked full-text search over product names and descriptions; safe to call from any thread. */
+    public List<Product> search(String query, int limit) {
+        return published.get().search.search(query, limit);
+    }
+
+    /**
+     * Products passing filter in the given order: the whole filtered catalog if query is blank, otherwise
+     * up to limit matches for query (best match first for FEATURED). Safe to call from any thread.
+     */
+    public List<Product> findProducts(String query, FacetIndex.Filter filter, SortIndex.Order order, int limit) {
+        Indexes current = published.get(); // One read, so all positions refer to the same snapshot
+        BitSet allowed = filter.isEmpty() ? null : current.facets.match(filter);
+        if (query == null || query.isBlank()) {
+            return current.sorts.select(order, allowed);
+        }
+        int[] matches = current.search.searchPositions(query, limit, allowed);
+        return current.sorts.toProducts(current.sorts.sort(order, matches));
+    }
+
+    /**
+     * Products offset to offset + limit - 1 of findProducts(query, filter, order, offset + limit), with the
+     * number of products that match in total (every search hit, not only the ones ranked into the page).
+     */
+    public ProductPage findProductPage(String query, FacetIndex.Filter filter, SortIndex.Order order, int offset, int limit) {
+        Indexes current = published.get();
+        BitSet allowed = filter.isEmpty() ? null : current.facets.match(filter);
+        int end = (int) Math.min(Integer.MAX_VALUE, (long) offset + limit);
+        List<Product> ranked;
+        int total;
+        if (query == null || query.isBlank()) {
+            ranked = current.sorts.select(order, allowed);
+            total = ranked.size();
+        } else {
+            SearchIndex.Matches matches = current.search.match(query, end, allowed);
+            ranked = current.sorts.toProducts(current.sorts.sort(order, matches.getPositions()));
+            total = matches.getTotal();
+        }
+        return new ProductPage(ranked.subList(Math.min(offset, ranked.size()), Math.min(end, ranked.size())), total);
+    }
+
+    /** Suggestions for the current catalog; rebuilt whenever a new snapshot is published. */
+    public Typeahead getTypeahead() {
+        return published.get().typeahead;
     }
 
+    /** Facet values and price bounds of the current catalog, for building filter controls. */
+    public FacetIndex getFacetIndex() {
+        return published.get().facets;
+    }
+
+    public static final class ProductPage {
+        private final List<Product> products;
+        private final int total;
+
+        ProductPage(List<Product> products, int total) {
+            this.products = products;
+            this.total = total;
+        }
+
+        public List<Product> getProducts() {
+            return products;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+    }
+
+    // One catalog snapshot and the indexes built from it, published together.
+    private static final class Indexes {
+        static final Indexes EMPTY = new Indexes(Catalog.EMPTY, SearchIndex.EMPTY, Typeahead.EMPTY, FacetIndex.EMPTY, SortIndex.EMPTY);
+
+        final Catalog catalog;
+        final SearchIndex search;
+        final Typeahead typeahead;
+        final FacetIndex facets;
+        final SortIndex sorts;
+
+        Indexes(Catalog catalog, SearchIndex search, Typeahead typeahead, FacetIndex facets, SortIndex sorts) {
+            this.catalog = catalog;
+            this.search = search;
+            this.typeahead = typeahead;
+            this.facets = facets;
+            this.sorts = sorts;
+        }
+    }
+
+    public Product getProduct(int productId) {
+        return getCatalog().get(productId);
+    }
+
+    /** The desktop session's cart, as a live read-only list for the Swing UI. */
     public List<CartItem> getCartItems() {
-        return cartItems;
+        return desktopSession.getCartItemsView();
     }
 
     public User getCurrentUser() {
-        return currentUser;
+        return desktopSession.user;
+    }
+
+    // === Session registry ===
+    // Sessions other than the desktop one are created on demand (e.g. one per HTTP client) and dropped after
+    // session.idleTimeoutMinutes without use. Their pending cart writes stay queued and are flushed as usual.
+
+    public Session getDesktopSession() {
+        return desktopSession;
+    }
+
+    /**
+     * Checks the credentials and, only if they are right, registers a new session signed in as that user,
+     * so failed attempts leave nothing behind. Returns null if the credentials are wrong.
+     */
+    public Session openSession(String email, String password) {
+        User user = authenticate(email, password);
+        if (user == null) {
+            return null;
+        }
+        Session session = createSession();
+        setCurrentUser(session, user);
+        return session;
+    }
+
+    public Session createSession() {
+        expireIdleSessions();
+        byte[] bytes = new byte[16];
+        sessionIds.nextBytes(bytes);
+        Session session = new Session(Base64.getUrlEncoder().withoutPadding().encodeToString(bytes));
+        sessions.put(session.getId(), session);
+        return session;
+    }
+
+    /** The live session with the given ID, or null if it is unknown or has expired. */
+    public Session getSession(String id) {
+        expireIdleSessions();
+        Session session = id == null ? null : sessions.get(id);
+        if (session == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() - session.getLastAccessMillis() > SESSION_IDLE_TIMEOUT_MS) {
+            sessions.remove(id, session);
+            return null;
+        }
+        session.touch();
+        return session;
+    }
+
+    public void closeSession(String id) {
+        Session session = sessions.remove(id);
+        if (session != null) {
+            applySession(session, null, null);
+        }
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    // Runs at most once a minute, on whichever thread happens to create or look up a session.
+    private void expireIdleSessions() {
+        long now = System.currentTimeMillis();
+        long last = lastSessionSweep.get();
+        if (now - last < 60_000 || !lastSessionSweep.compareAndSet(last, now)) {
+            return;
+        }
+        sessions.values().removeIf(session -> now - session.getLastAccessMillis() > SESSION_IDLE_TIMEOUT_MS);
     }
 
     public List<Product> getAllProducts() {
-        loadProductsFromDatabase(); // Refresh from DB
-        return new ArrayList<>(products);
+        return refreshCatalog().getProducts(); // Refresh from DB
+    }
+
+    public ConnectionPool getConnectionPool() {
+        return pool;
+    }
+
+    public CartWriteBehindQueue getCartWriteQueue() {
+        return cartWrites;
     }
 
     public void closeConnection() {
-        try {
-            if (conn != null && !conn.isClosed()) {
-                conn.close();
-                System.out.println("Database connection closed!");
-            }
-        } catch (SQLException e) {
-            System.out.println("Failed to close database connection!");
-            e.printStackTrace();
-        }
+        dbExecutor.shutdown();
+        cartWrites.shutdown();
+        pool.shutdown();
+        System.out.println("Database connection closed!");
     }
 }
\ No newline at end of file
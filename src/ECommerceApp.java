@@ -74,8 +74,7 @@ public class ECommerceApp {
         });
 
         shopPanel.setOnLogout(e -> {
-            DataManager.getInstance().setCurrentUser(null);
-            DataManager.getInstance().clearCart();
+            DataManager.getInstance().logoutAsync();
             loginPanel.clearFields();
             shopPanel.updateCartButton();
             cardLayout.show(mainPanel, "LOGIN");
@@ -0,0 +1,238 @@
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Filtering index over one Catalog snapshot. Prices are kept as a sorted long array, so a price range is
+ * two binary searches; every brand, gender and fragrance family value has a bitset of catalog positions,
+ * so a filter is a handful of word-wide ORs (within a facet) and ANDs (across facets) rather than a scan
+ * over the products.
+ */
+public final class FacetIndex {
+    public enum Facet {
+        BRAND("Brand"),
+        GENDER("Gender"),
+        FAMILY("Family");
+
+        private final String label;
+
+        Facet(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    static final FacetIndex EMPTY = build(Catalog.EMPTY);
+
+    private final Catalog catalog;
+    private final long[] sortedPrices; // Ascending
+    private final int[] byPrice;       // Catalog positions, parallel to sortedPrices
+    private final Map<Facet, String[]> values = new EnumMap<>(Facet.class); // Per facet: values, sorted
+    private final Map<Facet, BitSet[]> bits = new EnumMap<>(Facet.class);   // Per facet: positions, parallel to values
+
+    private FacetIndex(Catalog catalog, long[] sortedPrices, int[] byPrice) {
+        this.catalog = catalog;
+        this.sortedPrices = sortedPrices;
+        this.byPrice = byPrice;
+    }
+
+    public static FacetIndex build(Catalog catalog) {
+        int count = catalog.size();
+        long[] sortedPrices = new long[count];
+        int[] byPrice = new int[count];
+        // Sort (price, position) pairs packed into longs; only prices beyond 2^32 cents need the boxed sort.
+        long minPrice = 0;
+        long maxPrice = 0;
+        for (int i = 0; i < count; i++) {
+            minPrice = Math.min(minPrice, catalog.getAt(i).getPriceCents());
+            maxPrice = Math.max(maxPrice, catalog.getAt(i).getPriceCents());
+        }
+        if (minPrice >= 0 && maxPrice < (1L << 32)) {
+            long[] keys = new long[count];
+            for (int i = 0; i < count; i++) {
+                keys[i] = (catalog.getAt(i).getPriceCents() << 31) | i;
+            }
+            Arrays.sort(keys);
+            for (int i = 0; i < count; i++) {
+                byPrice[i] = (int) (keys[i] & Integer.MAX_VALUE);
+                sortedPrices[i] = keys[i] >>> 31;
+            }
+        } else {
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(catalog.getAt(a).getPriceCents(), catalog.getAt(b).getPriceCents()));
+            for (int i = 0; i < count; i++) {
+                byPrice[i] = order[i];
+                sortedPrices[i] = catalog.getAt(order[i]).getPriceCents();
+            }
+        }
+
+        FacetIndex index = new FacetIndex(catalog, sortedPrices, byPrice);
+        for (Facet facet : Facet.values()) {
+            // Group by exact value first (few distinct values, so cheap), then merge values differing only in case.
+            Map<String, BitSet> exact = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                String value = valueOf(catalog.getAt(i), facet);
+                if (value != null && !value.isEmpty()) {
+                    exact.computeIfAbsent(value, v -> new BitSet(count)).set(i);
+                }
+            }
+            Map<String, BitSet> positions = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            for (Map.Entry<String, BitSet> entry : exact.entrySet()) {
+                BitSet merged = positions.putIfAbsent(entry.getKey(), entry.getValue());
+                if (merged != null) {
+                    merged.or(entry.getValue());
+                }
+            }
+            index.values.put(facet, positions.keySet().toArray(new String[0]));
+            index.bits.put(facet, positions.values().toArray(new BitSet[0]));
+        }
+        return index;
+    }
+
+    /**
+     * This index for snapshot, a catalog with the same products at the same positions and the same facet
+     * values as this index's, in which only the prices at the positions in repriced may differ. The value
+     * bitsets are shared and only the repriced positions are moved in the price order, so nothing is
+     * sorted beyond them.
+     */
+    FacetIndex withPrices(Catalog snapshot, BitSet repriced) {
+        int[] newByPrice = byPrice;
+        long[] newPrices = sortedPrices;
+        if (!repriced.isEmpty()) {
+            newByPrice = SortIndex.reorder(byPrice, repriced, (a, b) -> {
+                int byCents = Long.compare(snapshot.getAt(a).getPriceCents(), snapshot.getAt(b).getPriceCents());
+                return byCents != 0 ? byCents : Integer.compare(a, b); // Ties in catalog order, as in build
+            });
+            newPrices = new long[newByPrice.length];
+            for (int i = 0; i < newByPrice.length; i++) {
+                newPrices[i] = snapshot.getAt(newByPrice[i]).getPriceCents();
+            }
+        }
+        FacetIndex index = new FacetIndex(snapshot, newPrices, newByPrice);
+        index.values.putAll(values);
+        index.bits.putAll(bits);
+        return index;
+    }
+
+    /** Whether product and previous have the same value for every facet, so the value bitsets still hold. */
+    static boolean sameFacets(Product product, Product previous) {
+        for (Facet facet : Facet.values()) {
+            if (!Objects.equals(valueOf(product, facet), valueOf(previous, facet))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String valueOf(Product product, Facet facet) {
+        String value = switch (facet) {
+            case BRAND -> product.getBrand();
+            case GENDER -> product.getGender();
+            case FAMILY -> product.getFamily();
+        };
+        return value == null ? null : value.trim();
+    }
+
+    public Catalog getCatalog() {
+        return catalog;
+    }
+
+    /** Distinct values of facet in this catalog, sorted case-insensitively; empty if the column is not populated. */
+    public List<String> getValues(Facet facet) {
+        return Collections.unmodifiableList(Arrays.asList(values.get(facet)));
+    }
+
+    public long getMinPriceCents() {
+        return sortedPrices.length == 0 ? 0 : sortedPrices[0];
+    }
+
+    public long getMaxPriceCents() {
+        return sortedPrices.length == 0 ? 0 : sortedPrices[sortedPrices.length - 1];
+    }
+
+    /** Catalog positions matching filter, or null if the filter does not exclude anything. */
+    public BitSet match(Filter filter) {
+        BitSet result = null;
+        int from = lowerBound(filter.minCents);
+        int to = filter.maxCents == Long.MAX_VALUE ? sortedPrices.length : lowerBound(filter.maxCents + 1);
+        if (from > 0 || to < sortedPrices.length) {
+            result = new BitSet(sortedPrices.length);
+            for (int i = from; i < to; i++) {
+                result.set(byPrice[i]);
+            }
+        }
+        for (Map.Entry<Facet, Set<String>> entry : filter.selected.entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                continue;
+            }
+            String[] facetValues = values.get(entry.getKey());
+            BitSet[] facetBits = bits.get(entry.getKey());
+            BitSet any = new BitSet(sortedPrices.length);
+            for (String value : entry.getValue()) {
+                int at = Arrays.binarySearch(facetValues, value, String.CASE_INSENSITIVE_ORDER);
+                if (at >= 0) {
+                    any.or(facetBits[at]);
+                }
+            }
+            if (result == null) {
+                result = any;
+            } else {
+                result.and(any);
+            }
+        }
+        return result;
+    }
+
+    /** Catalog positions from cheapest to most expensive; shared with SortIndex, so it must not be modified. */
+    int[] positionsByPrice() {
+        return byPrice;
+    }
+
+    private int lowerBound(long cents) {
+        int low = 0;
+        int high = sortedPrices.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedPrices[mid] < cents) low = mid + 1; else high = mid;
+        }
+        return low;
+    }
+
+    /** Price bounds (inclusive, in cents) plus the accepted values per facet; an empty set means any value. */
+    public static final class Filter {
+        public static final Filter NONE = new Filter(Long.MIN_VALUE, Long.MAX_VALUE, Collections.emptyMap());
+
+        private final long minCents;
+        private final long maxCents;
+        private final Map<Facet, Set<String>> selected;
+
+        public Filter(long minCents, long maxCents, Map<Facet, Set<String>> selected) {
+            this.minCents = minCents;
+            this.maxCents = maxCents;
+            this.selected = selected;
+        }
+
+        public boolean isEmpty() {
+            if (minCents != Long.MIN_VALUE || maxCents != Long.MAX_VALUE) {
+                return false;
+            }
+            for (Set<String> accepted : selected.values()) {
+                if (!accepted.isEmpty()) return false;
+            }
+            return true;
+        }
+    }
+}
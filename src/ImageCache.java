@@ -0,0 +1,201 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Process-wide cache of decoded images, addressed by a hash of the encoded file content so that
+ * identical files listed under different paths share one decoded copy.
+ * Recently used images are held strongly up to a byte budget (image.cache.maxBytes); images pushed
+ * out of the budget are kept only through soft references and may be reclaimed by the GC.
+ * Hits count lookups that found an image; misses count loads that had to produce one (each put), so a
+ * load that looks an image up by path and then by content counts once.
+ */
+public final class ImageCache {
+    private static final long MAX_BYTES = Long.getLong("image.cache.maxBytes", 64L * 1024 * 1024);
+    private static final ImageIcon PLACEHOLDER = renderPlaceholder();
+
+    private static final Map<String, String> pathToHash = new HashMap<>();
+    private static final LinkedHashMap<String, Entry> strong = new LinkedHashMap<>(64, 0.75f, true);
+    private static final Map<String, SoftEntry> soft = new HashMap<>();
+    private static final ReferenceQueue<Entry> cleared = new ReferenceQueue<>();
+    private static long residentBytes;
+
+    // Metrics
+    private static long hits;
+    private static long misses;
+    private static long evictions;
+
+    private ImageCache() {
+    }
+
+    /** Shared "No Image" placeholder; rendered once per process. */
+    public static ImageIcon placeholder() {
+        return PLACEHOLDER;
+    }
+
+    /** Looks up an image by the path it was loaded from. */
+    public static synchronized ImageIcon get(String path) {
+        String hash = pathToHash.get(path);
+        return hash == null ? null : lookup(hash);
+    }
+
+    /**
+     * Looks up an image by content hash and, on a hit, remembers that path resolves to it.
+     * Used after reading a file's bytes but before decoding them.
+     */
+    public static synchronized ImageIcon getByContent(String path, String hash) {
+        ImageIcon icon = lookup(hash);
+        if (icon != null) {
+            pathToHash.put(path, hash);
+        }
+        return icon;
+    }
+
+    public static synchronized void put(String path, String hash, ImageIcon icon) {
+        pathToHash.put(path, hash);
+        putDerived(hash, icon);
+    }
+
+    /** Looks up an image derived from cached content (e.g. a thumbnail) by its own key. */
+    public static synchronized ImageIcon getDerived(String key) {
+        return lookup(key);
+    }
+
+    /** Stores a derived image under its own key; it shares the byte budget with decoded sources. */
+    public static synchronized void putDerived(String key, ImageIcon icon) {
+        Entry entry = new Entry(icon, sizeOf(icon));
+        Entry previous = strong.put(key, entry);
+        if (previous != null) {
+            residentBytes -= previous.bytes;
+        }
+        soft.remove(key);
+        residentBytes += entry.bytes;
+        misses++;
+        trimToBudget();
+    }
+
+    public static String contentHash(ByteBuffer data) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(data.duplicate());
+            return toHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    private static ImageIcon lookup(String hash) {
+        Entry entry = strong.get(hash);
+        if (entry != null) {
+            hits++;
+            return entry.icon;
+        }
+        SoftEntry ref = soft.remove(hash);
+        entry = ref == null ? null : ref.get();
+        if (entry == null) {
+            return null;
+        }
+        hits++;
+        // Promote back into the strongly held set.
+        strong.put(hash, entry);
+        residentBytes += entry.bytes;
+        trimToBudget();
+        return entry.icon;
+    }
+
+    // Demotes least recently used entries to soft references until the budget holds again.
+    private static void trimToBudget() {
+        expungeCleared();
+        if (residentBytes <= MAX_BYTES) {
+            return;
+        }
+        Iterator<Map.Entry<String, Entry>> it = strong.entrySet().iterator();
+        // Always keep the most recently used entry, even if it alone exceeds the budget.
+        while (residentBytes > MAX_BYTES && strong.size() > 1) {
+            Map.Entry<String, Entry> eldest = it.next();
+            it.remove();
+            residentBytes -= eldest.getValue().bytes;
+            soft.put(eldest.getKey(), new SoftEntry(eldest.getKey(), eldest.getValue()));
+            evictions++;
+        }
+    }
+
+    // Drops the soft map entries whose images the GC has reclaimed; costs nothing when none were.
+    private static void expungeCleared() {
+        SoftEntry ref;
+        while ((ref = (SoftEntry) cleared.poll()) != null) {
+            soft.remove(ref.key, ref);
+        }
+    }
+
+    private static long sizeOf(ImageIcon icon) {
+        Image image = icon.getImage();
+        if (image instanceof BufferedImage) {
+            DataBuffer buffer = ((BufferedImage) image).getRaster().getDataBuffer();
+            return (long) buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+        }
+        return (long) Math.max(0, icon.getIconWidth()) * Math.max(0, icon.getIconHeight()) * 4;
+    }
+
+    private static ImageIcon renderPlaceholder() {
+        BufferedImage placeholder = new BufferedImage(300, 300, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = placeholder.createGraphics();
+        g2d.setColor(new Color(220, 220, 220));
+        g2d.fillRect(0, 0, 300, 300);
+        g2d.setColor(Color.DARK_GRAY);
+        g2d.setFont(new Font("Arial", Font.BOLD, 24));
+        g2d.drawString("No Image", 80, 150);
+        g2d.dispose();
+        return new ImageIcon(placeholder);
+    }
+
+    // Metrics
+    public static synchronized long getHits() { return hits; }
+    public static synchronized long getMisses() { return misses; }
+    public static synchronized long getEvictions() { return evictions; }
+    public static synchronized long getResidentBytes() { return residentBytes; }
+    public static synchronized int getResidentCount() { return strong.size(); }
+    public static long getMaxBytes() { return MAX_BYTES; }
+
+    public static synchronized double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    private static final class SoftEntry extends SoftReference<Entry> {
+        final String key;
+
+        SoftEntry(String key, Entry entry) {
+            super(entry, cleared);
+            this.key = key;
+        }
+    }
+
+    private static final class Entry {
+        final ImageIcon icon;
+        final long bytes;
+
+        Entry(ImageIcon icon, long bytes) {
+            this.icon = icon;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.event.IIOReadUpdateListener;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+/**
+ * Decodes images straight to (roughly) the size they will be shown at, using ImageReadParam source
+ * subsampling and optional region reads, so a 100px card never materialises the full-resolution raster.
+ */
+public final class ImageDecoder {
+    private ImageDecoder() {
+    }
+
+    /**
+     * Decodes data so that the result is at least targetWidth x targetHeight but otherwise as small as
+     * integer subsampling allows. region selects part of the source image; null means the whole image.
+     * For progressive images, onFirstPass (if not null) receives the coarse first pass before the full
+     * decode finishes; it is called on the decoding thread and must not keep the image it is given.
+     */
+    public static BufferedImage decode(ByteBuffer data, int targetWidth, int targetHeight,
+                                       Rectangle region, Consumer<BufferedImage> onFirstPass) throws IOException {
+        try (ImageInputStream in = new ByteBufferImageInputStream(data)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                Rectangle source = new Rectangle(0, 0, reader.getWidth(0), reader.getHeight(0));
+                if (region != null) {
+                    source = source.intersection(region);
+                }
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                if (region != null) {
+                    param.setSourceRegion(source);
+                }
+                int subsampling = Math.max(1, Math.min(source.width / Math.max(1, targetWidth),
+                        source.height / Math.max(1, targetHeight)));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+
+                if (onFirstPass != null) {
+                    reader.addIIOReadUpdateListener(new FirstPassListener(onFirstPass));
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static final class FirstPassListener implements IIOReadUpdateListener {
+        private final Consumer<BufferedImage> onFirstPass;
+        private boolean multiPass;
+        private boolean delivered;
+
+        FirstPassListener(Consumer<BufferedImage> onFirstPass) {
+            this.onFirstPass = onFirstPass;
+        }
+
+        @Override
+        public void passStarted(ImageReader source, BufferedImage theImage, int pass, int minPass, int maxPass,
+                                int minX, int minY, int periodX, int periodY, int[] bands) {
+            multiPass = maxPass > minPass;
+        }
+
+        @Override
+        public void passComplete(ImageReader source, BufferedImage theImage) {
+            if (multiPass && !delivered) {
+                delivered = true;
+                onFirstPass.accept(theImage);
+            }
+        }
+
+        @Override
+        public void imageUpdate(ImageReader source, BufferedImage theImage, int minX, int minY,
+                                int width, int height, int periodX, int periodY, int[] bands) {
+        }
+
+        @Override
+        public void thumbnailPassStarted(ImageReader source, BufferedImage theThumbnail, int pass, int minPass,
+                                         int maxPass, int minX, int minY, int periodX, int periodY, int[] bands) {
+        }
+
+        @Override
+        public void thumbnailPassComplete(ImageReader source, BufferedImage theThumbnail) {
+        }
+
+        @Override
+        public void thumbnailUpdate(ImageReader source, BufferedImage theThumbnail, int minX, int minY,
+                                    int width, int height, int periodX, int periodY, int[] bands) {
+        }
+    }
+}
@@ -0,0 +1,139 @@
+import javax.imageio.ImageIO;
+import javax.swing.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decodes product images on a small worker pool, off the event dispatch thread.
+ * Decoded images live in ImageCache; this class only tracks decodes that are still running, so
+ * every caller asking for the same path while it decodes shares the same future.
+ */
+public final class ImageLoader {
+    private static final int WORKERS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private static final ConcurrentHashMap<String, CompletableFuture<ImageIcon>> inFlight = new ConcurrentHashMap<>();
+    private static final Set<String> missing = ConcurrentHashMap.newKeySet();
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final ExecutorService decoders = Executors.newFixedThreadPool(WORKERS, r -> {
+        Thread t = new Thread(r, "image-decoder-" + threadCount.incrementAndGet());
+        t.setDaemon(true);
+        t.setPriority(Thread.NORM_PRIORITY - 1);
+        return t;
+    });
+
+    private ImageLoader() {
+    }
+
+    /** Returns the decode of the image at path, starting it if it is neither cached nor running. */
+    public static CompletableFuture<ImageIcon> load(String path) {
+        ImageIcon cached = getIfLoaded(path);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<ImageIcon> future = new CompletableFuture<>();
+        CompletableFuture<ImageIcon> running = inFlight.putIfAbsent(path, future);
+        if (running != null) {
+            return running;
+        }
+        CompletableFuture.supplyAsync(() -> decode(path), decoders).whenComplete((icon, error) -> {
+            inFlight.remove(path, future);
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                future.complete(icon);
+            }
+        });
+        return future;
+    }
+
+    /** Worker pool used for decoding; also suitable for follow-up work such as scaling. */
+    public static Executor executor() {
+        return decoders;
+    }
+
+    /** Returns the decoded image if it is already available, or null without blocking. */
+    public static ImageIcon getIfLoaded(String path) {
+        if (missing.contains(path)) {
+            return ImageCache.placeholder();
+        }
+        return ImageCache.get(path);
+    }
+
+    private static ImageIcon decode(String path) {
+        try {
+            ByteBuffer data = readAsset(path);
+            if (data == null) {
+                System.out.println("Image not found: " + path);
+                missing.add(path);
+                return ImageCache.placeholder();
+            }
+
+            String hash = contentHash(path, data);
+            ImageIcon icon = ImageCache.getByContent(path, hash);
+            if (icon != null) {
+                return icon; // Same file content already decoded under another path
+            }
+
+            BufferedImage img = ImageIO.read(new ByteBufferImageInputStream(data));
+            if (img == null) {
+                System.out.println("Could not load image: " + path);
+                missing.add(path);
+                return ImageCache.placeholder();
+            }
+            icon = new ImageIcon(img); // Store native resolution
+            ImageCache.put(path, hash, icon);
+            return icon;
+        } catch (IOException e) {
+            System.out.println("Could not load image: " + path);
+            return ImageCache.placeholder();
+        }
+    }
+
+    /**
+     * Returns the encoded bytes of an image, or null if it does not exist. Served as a zero-copy slice of
+     * the memory-mapped asset pack when there is one; loose files are only read as a fallback.
+     */
+    static ByteBuffer readAsset(String path) throws IOException {
+        AssetPack pack = AssetPack.getDefault();
+        if (pack != null) {
+            int id = pack.idOf(path);
+            if (id >= 0) {
+                return pack.slice(id);
+            }
+        }
+
+        // Try to load from resources
+        URL resource = ImageLoader.class.getClassLoader().getResource(path);
+        if (resource != null) {
+            try (InputStream in = resource.openStream()) {
+                return ByteBuffer.wrap(in.readAllBytes());
+            }
+        }
+
+        // Try to load from project root
+        File file = new File(path);
+        if (file.isFile()) {
+            return ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        }
+        return null;
+    }
+
+    /** SHA-256 of an asset's bytes, taken from the pack index when possible instead of rehashing. */
+    static String contentHash(String path, ByteBuffer data) {
+        AssetPack pack = AssetPack.getDefault();
+        int id = pack == null ? -1 : pack.idOf(path);
+        return id >= 0 ? pack.hashOf(id) : ImageCache.contentHash(data);
+    }
+}
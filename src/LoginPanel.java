@@ -1,7 +1,6 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionListener;
-import java.sql.*;
 
 public class LoginPanel extends JPanel {
     private JTextField emailField;
@@ -9,11 +8,6 @@ public class LoginPanel extends JPanel {
     private ActionListener onLoginSuccess;
     private ActionListener onRegisterClick;
 
-    // Database connection details
-    private static final String DB_URL = "jdbc:mysql://localhost:3306/e_commerce";
-    private static final String DB_USER = "root";
-    private static final String DB_PASSWORD = "Password";
-
     public LoginPanel() {
         initializeUI();
     }
@@ -88,46 +82,6 @@ public class LoginPanel extends JPanel {
         add(buttonPanel, gbc);
     }
 
-    // === Database Connection Method ===
-    private Connection getConnection() throws SQLException {
-        try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            return DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-        } catch (ClassNotFoundException e) {
-            throw new SQLException("MySQL JDBC Driver not found", e);
-        }
-    }
-
-    // === User Authentication Method ===
-    private User authenticateUser(String email, String password) {
-        String query = "SELECT User_ID, Name, Email FROM customer WHERE Email = ? AND Password = ?";
-
-        try (Connection conn = getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query)) {
-
-            pstmt.setString(1, email);
-            pstmt.setString(2, password); // In production, use hashed passwords!
-
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next()) {
-                int userId = rs.getInt("User_ID");
-                String name = rs.getString("Name");
-                String userEmail = rs.getString("Email");
-                return new User(userId, name, userEmail, password);
-            }
-
-        } catch (SQLException e) {
-            System.err.println("Database error during authentication: " + e.getMessage());
-            JOptionPane.showMessageDialog(this,
-                    "Database connection error. Please try again later.",
-                    "Connection Error",
-                    JOptionPane.ERROR_MESSAGE);
-        }
-
-        return null; // Authentication failed
-    }
-
     // === Rounded Components ===
     private JTextField createRoundedTextField() {
         return createRoundedTextField(new JTextField(20));
@@ -178,50 +132,35 @@ public class LoginPanel extends JPanel {
         // Show loading cursor
         setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
 
-        // Perform authentication in background thread to avoid UI freezing
-        SwingWorker<User, Void> worker = new SwingWorker<User, Void>() {
-            @Override
-            protected User doInBackground() throws Exception {
-                return authenticateUser(email, password);
-            }
-
-            @Override
-            protected void done() {
-                setCursor(Cursor.getDefaultCursor());
-                try {
-                    User user = get();
-                    if (user != null) {
-                        // Login successful
-                        DataManager.getInstance().setCurrentUser(user);
-                        JOptionPane.showMessageDialog(LoginPanel.this,
-                                "Welcome, " + user.getName() + "!",
-                                "Login Successful",
-                                JOptionPane.INFORMATION_MESSAGE);
-
-                        if (onLoginSuccess != null) {
-                            onLoginSuccess.actionPerformed(null);
-                        }
-                        clearFields();
-                    } else {
-                        // Login failed
-                        JOptionPane.showMessageDialog(LoginPanel.this,
-                                "Invalid email or password. Please try again.",
-                                "Login Failed",
-                                JOptionPane.ERROR_MESSAGE);
-                        passwordField.setText(""); // Clear password field
-                        passwordField.requestFocus();
-                    }
-                } catch (Exception e) {
-                    setCursor(Cursor.getDefaultCursor());
-                    JOptionPane.showMessageDialog(LoginPanel.this,
-                            "An error occurred during login. Please try again.",
-                            "Error",
-                            JOptionPane.ERROR_MESSAGE);
+        // Authentication and cart loading run off the EDT; the callback runs back on the EDT.
+        DataManager.getInstance().loginAsync(email, password).whenComplete((user, error) -> {
+            setCursor(Cursor.getDefaultCursor());
+            if (error != null) {
+                JOptionPane.showMessageDialog(LoginPanel.this,
+                        "An error occurred during login. Please try again.",
+                        "Error",
+                        JOptionPane.ERROR_MESSAGE);
+            } else if (user != null) {
+                // Login successful
+                JOptionPane.showMessageDialog(LoginPanel.this,
+                        "Welcome, " + user.getName() + "!",
+                        "Login Successful",
+                        JOptionPane.INFORMATION_MESSAGE);
+
+                if (onLoginSuccess != null) {
+                    onLoginSuccess.actionPerformed(null);
                 }
+                clearFields();
+            } else {
+                // Login failed
+                JOptionPane.showMessageDialog(LoginPanel.this,
+                        "Invalid email or password. Please try again.",
+                        "Login Failed",
+                        JOptionPane.ERROR_MESSAGE);
+                passwordField.setText(""); // Clear password field
+                passwordField.requestFocus();
             }
-        };
-
-        worker.execute();
+        });
     }
 
     public void setOnLoginSuccess(ActionListener listener) {
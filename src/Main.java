@@ -1,7 +1,18 @@
 import javax.swing.*;
 
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
+        // java Main --server [port]: headless JSON API instead of the Swing UI
+        if (args.length > 0 && args[0].equals("--server")) {
+            System.setProperty("java.awt.headless", "true");
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : Integer.getInteger("server.port", 8080);
+            ShopServer server = ShopServer.start(port);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.stop(2);
+                DataManager.getInstance().closeConnection();
+            }, "shop-server-shutdown"));
+            return;
+        }
         SwingUtilities.invokeLater(() -> {
             try {
                 UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
@@ -0,0 +1,34 @@
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Helpers for amounts held as long cents. Prices are converted once from the database's
+ * decimal(10,2) columns and only converted back when written, so sums are exact.
+ */
+public final class Money {
+    private Money() {
+    }
+
+    public static long toCents(BigDecimal amount) {
+        return amount == null ? 0 : amount.setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValueExact();
+    }
+
+    public static BigDecimal toDecimal(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    /** Formats cents as "$12.34" without going through floating point. */
+    public static String format(long cents) {
+        StringBuilder sb = new StringBuilder(16);
+        if (cents < 0) {
+            sb.append('-');
+            cents = -cents;
+        }
+        long remainder = cents % 100;
+        sb.append('$').append(cents / 100).append('.');
+        if (remainder < 10) {
+            sb.append('0');
+        }
+        return sb.append(remainder).toString();
+    }
+}
@@ -1,82 +1,90 @@
 import javax.swing.*;
-import javax.imageio.ImageIO;
-import java.awt.*;
-import java.awt.image.BufferedImage;
-import java.io.File;
-import java.io.IOException;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public class Product {
     private int productId;
     private String name;
-    private double price;
+    private long priceCents;
     private String description;
     private List<String> imagePaths;
-    private List<ImageIcon> imageIcons;
+    private String brand;
+    private String gender;
+    private String family;
 
-    public Product(int productId, String name, double price, String description, List<String> imagePaths) {
+    public Product(int productId, String name, long priceCents, String description, List<String> imagePaths) {
+        this(productId, name, priceCents, description, imagePaths, null, null, null);
+    }
+
+    public Product(int productId, String name, long priceCents, String description, List<String> imagePaths,
+                   String brand, String gender, String family) {
         this.productId = productId;
         this.name = name;
-        this.price = price;
+        this.priceCents = priceCents;
         this.description = description;
         this.imagePaths = imagePaths;
-        this.imageIcons = loadImages(imagePaths);
+        this.brand = brand;
+        this.gender = gender;
+        this.family = family;
+        // Images are decoded lazily by ImageLoader the first time they are requested.
     }
 
-    private List<ImageIcon> loadImages(List<String> paths) {
-        List<ImageIcon> icons = new ArrayList<>();
-        for (String path : paths) {
-            ImageIcon icon = loadSingleImage(path);
-            icons.add(icon);
+    /** Starts (or joins) the background decode of the image at index; completes with a placeholder if there is none. */
+    public CompletableFuture<ImageIcon> loadImage(int index) {
+        if (index < 0 || index >= imagePaths.size()) {
+            return CompletableFuture.completedFuture(createPlaceholderImage());
         }
-        return icons;
+        return ImageLoader.load(imagePaths.get(index));
     }
 
-    private ImageIcon loadSingleImage(String path) {
-        try {
-            // Try to load from resources
-            URL resource = getClass().getClassLoader().getResource(path);
-            if (resource != null) {
-                BufferedImage img = ImageIO.read(resource);
-                return new ImageIcon(img); // Store native resolution
-            }
+    /** Returns the image at index pre-scaled to one of the standard UI sizes. */
+    public CompletableFuture<ImageIcon> loadThumbnail(int index, ThumbnailCache.Size size) {
+        return loadThumbnail(index, size, null);
+    }
 
-            // Try to load from project root
-            File file = new File(path);
-            System.out.println("Checking file: " + file.getAbsolutePath());
-            if (file.exists()) {
-                BufferedImage img = ImageIO.read(file);
-                return new ImageIcon(img); // Store native resolution
-            }
+    /** Like loadThumbnail(index, size); onPreview receives a coarse first pass of progressive images. */
+    public CompletableFuture<ImageIcon> loadThumbnail(int index, ThumbnailCache.Size size, Consumer<ImageIcon> onPreview) {
+        if (index < 0 || index >= imagePaths.size()) {
+            return CompletableFuture.completedFuture(ThumbnailCache.placeholder(size));
+        }
+        return ThumbnailCache.load(imagePaths.get(index), size, onPreview);
+    }
 
-            System.out.println("Image not found: " + path);
+    /** Returns the image at index if it has been decoded, otherwise a placeholder; never blocks. */
+    public ImageIcon getImageIcon(int index) {
+        if (index < 0 || index >= imagePaths.size()) {
             return createPlaceholderImage();
-        } catch (IOException e) {
-            System.out.println("Could not load image: " + path);
+        }
+        ImageIcon icon = ImageLoader.getIfLoaded(imagePaths.get(index));
+        if (icon == null) {
+            loadImage(index);
             return createPlaceholderImage();
         }
+        return icon;
     }
 
-    public ImageIcon createPlaceholderImage() {
-        BufferedImage placeholder = new BufferedImage(300, 300, BufferedImage.TYPE_INT_RGB);
-        Graphics2D g2d = placeholder.createGraphics();
-        g2d.setColor(new Color(220, 220, 220));
-        g2d.fillRect(0, 0, 300, 300);
-        g2d.setColor(Color.DARK_GRAY);
-        g2d.setFont(new Font("Arial", Font.BOLD, 24));
-        g2d.drawString("No Image", 80, 150);
-        g2d.dispose();
-        return new ImageIcon(placeholder);
+    public static ImageIcon createPlaceholderImage() {
+        return ImageCache.placeholder();
     }
 
     // Getters
     public int getProductId() { return productId; }
     public String getName() { return name; }
-    public double getPrice() { return price; }
+    public long getPriceCents() { return priceCents; }
     public String getDescription() { return description; }
     public List<String> getImagePaths() { return imagePaths; }
-    public List<ImageIcon> getImageIcons() { return imageIcons; }
-    public ImageIcon getImageIcon() { return imageIcons.isEmpty() ? createPlaceholderImage() : imageIcons.get(0); }
-}
\ No newline at end of file
+    public String getBrand() { return brand; }
+    public String getGender() { return gender; }
+    public String getFamily() { return family; }
+    public int getImageCount() { return imagePaths.size(); }
+    public List<ImageIcon> getImageIcons() {
+        List<ImageIcon> icons = new ArrayList<>();
+        for (int i = 0; i < imagePaths.size(); i++) {
+            icons.add(getImageIcon(i));
+        }
+        return icons;
+    }
+    public ImageIcon getImageIcon() { return getImageIcon(0); }
+}
@@ -1,7 +1,6 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionListener;
-import java.sql.*;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
@@ -13,11 +12,6 @@ public class RegistrationPanel extends JPanel {
     private ActionListener onRegistrationSuccess;
     private ActionListener onBackToLogin;
 
-    // Database connection details
-    private static final String DB_URL = "jdbc:mysql://localhost:3306/e_commerce";
-    private static final String DB_USER = "root";
-    private static final String DB_PASSWORD = "Password";
-
     public RegistrationPanel() {
         initializeUI();
     }
@@ -138,16 +132,6 @@ public class RegistrationPanel extends JPanel {
         return button;
     }
 
-    // === Database Connection ===
-    private Connection getConnection() throws SQLException {
-        try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            return DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-        } catch (ClassNotFoundException e) {
-            throw new SQLException("MySQL JDBC Driver not found", e);
-        }
-    }
-
     // === Email Validation ===
     private boolean isValidEmail(String email) {
         return email.contains("@") && email.contains(".") && email.length() > 5;
@@ -159,45 +143,6 @@ public class RegistrationPanel extends JPanel {
         return password;
     }
 
-    // === Check if email already exists ===
-    private boolean emailExists(String email) {
-        String query = "SELECT COUNT(*) FROM customers WHERE Email = ?";
-        try (Connection conn = getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query)) {
-
-            pstmt.setString(1, email);
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next()) {
-                return rs.getInt(1) > 0;
-            }
-        } catch (SQLException e) {
-            System.err.println("Error checking email existence: " + e.getMessage());
-        }
-        return false;
-    }
-
-    // === Insert user into database ===
-    private boolean insertUser(String name, String email, String password) {
-        String query = "INSERT INTO customer (Name, Email, Password) VALUES (?, ?, ?)";
-
-        try (Connection conn = getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query)) {
-
-            pstmt.setString(1, name);
-            pstmt.setString(2, email);
-            pstmt.setString(3, password); // Store plain text password
-
-            int rowsAffected = pstmt.executeUpdate();
-            return rowsAffected > 0;
-
-        } catch (SQLException e) {
-            System.err.println("Error inserting user: " + e.getMessage());
-            e.printStackTrace();
-            return false;
-        }
-    }
-
     // === Registration Logic ===
     private void performRegistration() {
         String name = nameField.getText().trim();
@@ -226,22 +171,22 @@ public class RegistrationPanel extends JPanel {
             return;
         }
 
-        // Check if email already exists
-        if (emailExists(email)) {
-            JOptionPane.showMessageDialog(this, "An account with this email already exists!", "Registration Error", JOptionPane.ERROR_MESSAGE);
-            return;
-        }
-
-        // Try to insert user into database
-        if (insertUser(name, email, password)) {
-            JOptionPane.showMessageDialog(this, "Account created successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-            clearFields();
-            if (onRegistrationSuccess != null) {
-                onRegistrationSuccess.actionPerformed(null);
+        // The email check and insert run off the EDT
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        DataManager.getInstance().registerAsync(name, email, password).whenComplete((result, error) -> {
+            setCursor(Cursor.getDefaultCursor());
+            if (result == DataManager.RegistrationResult.EMAIL_EXISTS) {
+                JOptionPane.showMessageDialog(this, "An account with this email already exists!", "Registration Error", JOptionPane.ERROR_MESSAGE);
+            } else if (result == DataManager.RegistrationResult.SUCCESS) {
+                JOptionPane.showMessageDialog(this, "Account created successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
+                clearFields();
+                if (onRegistrationSuccess != null) {
+                    onRegistrationSuccess.actionPerformed(null);
+                }
+            } else {
+                JOptionPane.showMessageDialog(this, "Failed to create account. Please try again.", "Database Error", JOptionPane.ERROR_MESSAGE);
             }
-        } else {
-            JOptionPane.showMessageDialog(this, "Failed to create account. Please try again.", "Database Error", JOptionPane.ERROR_MESSAGE);
-        }
+        });
     }
 
     public void setOnRegistrationSuccess(ActionListener listener) {
@@ -0,0 +1,368 @@
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Inverted index over product names and descriptions, ranked with BM25. Postings are parallel arrays of
+ * catalog positions and precomputed BM25 term weights, so a query is only primitive array additions.
+ * Each index is immutable and belongs to one Catalog snapshot; building the index for the next snapshot
+ * reuses the analysed form of every Product instance the two snapshots share, so after a delta
+ * refresh only changed products are tokenized again.
+ */
+public final class SearchIndex {
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int NAME_WEIGHT = 3; // A name match counts as much as three description matches
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    static final SearchIndex EMPTY = build(Catalog.EMPTY, null);
+
+    private final Catalog catalog;
+    private final Map<String, Integer> termIds; // Only grows, so a term keeps its ID across builds
+    private final int[][] postingDocs;  // Per term: catalog positions, ascending
+    private final float[][] postingWeights; // Per term: BM25 weight in each document, parallel to postingDocs
+    private final IdentityHashMap<Product, Document> documents;
+
+    private SearchIndex(Catalog catalog, Map<String, Integer> termIds, int[][] postingDocs, float[][] postingWeights,
+                        IdentityHashMap<Product, Document> documents) {
+        this.catalog = catalog;
+        this.termIds = termIds;
+        this.postingDocs = postingDocs;
+        this.postingWeights = postingWeights;
+        this.documents = documents;
+    }
+
+    /** Builds the index for catalog, reusing previous's analysed documents where possible (previous may be null). */
+    public static SearchIndex build(Catalog catalog, SearchIndex previous) {
+        Map<String, Integer> termIds = previous == null ? new HashMap<>() : new HashMap<>(previous.termIds);
+        IdentityHashMap<Product, Document> documents = new IdentityHashMap<>(catalog.size());
+        int count = catalog.size();
+        Document[] docs = new Document[count];
+        long totalLength = 0;
+        for (int i = 0; i < count; i++) {
+            Product product = catalog.getAt(i);
+            Document doc = previous == null ? null : previous.documents.get(product);
+            if (doc == null) {
+                doc = analyze(product, termIds);
+            }
+            documents.put(product, doc);
+            docs[i] = doc;
+            totalLength += doc.length;
+        }
+
+        int terms = termIds.size();
+        int[] df = new int[terms];
+        for (Document doc : docs) {
+            for (int term : doc.terms) {
+                df[term]++;
+            }
+        }
+        int[][] postingDocs = new int[terms][];
+        float[][] postingWeights = new float[terms][];
+        float[] idf = new float[terms];
+        for (int t = 0; t < terms; t++) {
+            postingDocs[t] = new int[df[t]];
+            postingWeights[t] = new float[df[t]];
+            idf[t] = (float) Math.log(1 + (count - df[t] + 0.5) / (df[t] + 0.5));
+        }
+        int[] fill = new int[terms];
+        float averageLength = count == 0 ? 1 : Math.max(1, (float) totalLength / count);
+        for (int i = 0; i < count; i++) {
+            Document doc = docs[i];
+            float lengthNorm = K1 * (1 - B + B * doc.length / averageLength);
+            for (int j = 0; j < doc.terms.length; j++) {
+                int term = doc.terms[j];
+                int tf = doc.freqs[j];
+                postingDocs[term][fill[term]] = i;
+                postingWeights[term][fill[term]++] = idf[term] * tf * (K1 + 1) / (tf + lengthNorm);
+            }
+        }
+        return new SearchIndex(catalog, termIds, postingDocs, postingWeights, documents);
+    }
+
+    /**
+     * This index for snapshot, a catalog with the same products at the same positions as this index's in
+     * which no name or description changed, e.g. after a price-only refresh. The postings are shared; only
+     * the replaced Product instances are mapped to their (unchanged) analysed documents.
+     */
+    SearchIndex withCatalog(Catalog snapshot) {
+        IdentityHashMap<Product, Document> newDocuments = new IdentityHashMap<>(snapshot.size());
+        for (int i = 0; i < snapshot.size(); i++) {
+            newDocuments.put(snapshot.getAt(i), documents.get(catalog.getAt(i)));
+        }
+        return new SearchIndex(snapshot, termIds, postingDocs, postingWeights, newDocuments);
+    }
+
+    /**
+     * Returns up to limit products, best BM25 score first. Products containing every query term are
+     * returned if there are any; otherwise products containing at least one of them.
+     */
+    public List<Product> search(String query, int limit) {
+        return search(query, limit, null);
+    }
+
+    /** Like search(query, limit), restricted to the catalog positions set in allowed (null allows all). */
+    public List<Product> search(String query, int limit, BitSet allowed) {
+        int[] positions = searchPositions(query, limit, allowed);
+        List<Product> results = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            results.add(catalog.getAt(position));
+        }
+        return results;
+    }
+
+    /** Catalog positions of the matches, best first; the same matches search(query, limit, allowed) returns. */
+    public int[] searchPositions(String query, int limit, BitSet allowed) {
+        return match(query, limit, allowed).positions;
+    }
+
+    /** Like searchPositions(query, limit, allowed), also counting every product that matched, not just the returned ones. */
+    public Matches match(String query, int limit, BitSet allowed) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty() || catalog.size() == 0 || limit <= 0) {
+            return Matches.NONE;
+        }
+        int[] terms = new int[tokens.size()];
+        int termCount = 0;
+        boolean allMatchable = true;
+        for (String token : new LinkedHashSet<>(tokens)) {
+            Integer term = termIds.get(token);
+            if (term == null || postingDocs[term].length == 0) {
+                allMatchable = false;
+            } else {
+                terms[termCount++] = term;
+            }
+        }
+        TopK top = new TopK(Math.min(limit, catalog.size()));
+        if (allMatchable) {
+            matchAll(terms, termCount, allowed, top);
+        }
+        if (top.size == 0) {
+            matchAny(terms, termCount, allowed, top);
+        }
+        return new Matches(top.toPositions(), top.matched);
+    }
+
+    // Conjunctive match: walks the rarest term's postings and gallops through the others, so the cost
+    // follows the shortest posting list rather than the most common term.
+    private void matchAll(int[] terms, int termCount, BitSet allowed, TopK top) {
+        int rarest = 0;
+        for (int t = 1; t < termCount; t++) {
+            if (postingDocs[terms[t]].length < postingDocs[terms[rarest]].length) rarest = t;
+        }
+        int[] lead = postingDocs[terms[rarest]];
+        float[] leadWeights = postingWeights[terms[rarest]];
+        int[] cursors = new int[termCount];
+        candidates:
+        for (int i = 0; i < lead.length; i++) {
+            int doc = lead[i];
+            if (allowed != null && !allowed.get(doc)) continue;
+            float score = leadWeights[i];
+            for (int t = 0; t < termCount; t++) {
+                if (t == rarest) continue;
+                int[] docs = postingDocs[terms[t]];
+                int at = gallop(docs, cursors[t], doc);
+                cursors[t] = at;
+                if (at == docs.length) break candidates; // No later document can contain this term
+                if (docs[at] != doc) continue candidates;
+                score += postingWeights[terms[t]][at];
+            }
+            top.offer(doc, score);
+        }
+    }
+
+    // Disjunctive match: accumulates scores for every document containing any term.
+    private void matchAny(int[] terms, int termCount, BitSet allowed, TopK top) {
+        float[] scores = new float[catalog.size()];
+        int[] touched = new int[16];
+        int touchedCount = 0;
+        for (int t = 0; t < termCount; t++) {
+            int[] docs = postingDocs[terms[t]];
+            float[] weights = postingWeights[terms[t]];
+            for (int i = 0; i < docs.length; i++) {
+                int doc = docs[i];
+                if (scores[doc] == 0) {
+                    if (touchedCount == touched.length) {
+                        touched = Arrays.copyOf(touched, touchedCount * 2);
+                    }
+                    touched[touchedCount++] = doc;
+                }
+                scores[doc] += weights[i];
+            }
+        }
+        for (int i = 0; i < touchedCount; i++) {
+            if (allowed != null && !allowed.get(touched[i])) continue;
+            top.offer(touched[i], scores[touched[i]]);
+        }
+    }
+
+    /** First index at or after from whose value is >= target (or docs.length): exponential, then binary search. */
+    private static int gallop(int[] docs, int from, int target) {
+        int low = from;
+        int high = from;
+        int step = 1;
+        while (high < docs.length && docs[high] < target) {
+            low = high + 1;
+            high += step;
+            step <<= 1;
+        }
+        high = Math.min(high, docs.length);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (docs[mid] < target) low = mid + 1; else high = mid;
+        }
+        return low;
+    }
+
+    public Catalog getCatalog() {
+        return catalog;
+    }
+
+    /** Lower-cased, accent-free word tokens: "Hermès Terre" becomes [hermes, terre]. */
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> tokens = new ArrayList<>();
+        if (isAscii(text)) {
+            // Fast path for the common case: no accents to fold, so split by hand.
+            int start = -1;
+            for (int i = 0; i <= text.length(); i++) {
+                char c = i < text.length() ? text.charAt(i) : ' ';
+                if (Character.isLetterOrDigit(c)) {
+                    if (start < 0) start = i;
+                } else if (start >= 0) {
+                    tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                    start = -1;
+                }
+            }
+            return tokens;
+        }
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        for (String token : SEPARATORS.split(folded.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) return false;
+        }
+        return true;
+    }
+
+    private static Document analyze(Product product, Map<String, Integer> termIds) {
+        Map<Integer, Integer> freqs = new HashMap<>();
+        int length = 0;
+        for (String token : tokenize(product.getName())) {
+            freqs.merge(termIds.computeIfAbsent(token, t -> termIds.size()), NAME_WEIGHT, Integer::sum);
+            length += NAME_WEIGHT;
+        }
+        for (String token : tokenize(product.getDescription())) {
+            freqs.merge(termIds.computeIfAbsent(token, t -> termIds.size()), 1, Integer::sum);
+            length++;
+        }
+        int[] terms = new int[freqs.size()];
+        int[] counts = new int[freqs.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Integer> entry : freqs.entrySet()) {
+            terms[i] = entry.getKey();
+            counts[i++] = entry.getValue();
+        }
+        return new Document(terms, counts, length);
+    }
+
+    /** The best matches of a search, best first, and how many products matched in all. */
+    public static final class Matches {
+        static final Matches NONE = new Matches(new int[0], 0);
+
+        final int[] positions;
+        final int total;
+
+        Matches(int[] positions, int total) {
+            this.positions = positions;
+            this.total = total;
+        }
+
+        public int[] getPositions() {
+            return positions;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+    }
+
+    /**
+     * Keeps the limit best (score, position) pairs in a min-heap of longs, so ranking never boxes.
+     * Positive float bits order like the floats; ties go to the earlier catalog position.
+     */
+    private static final class TopK {
+        final long[] heap;
+        int size;
+        int matched; // Every document offered, kept or not
+
+        TopK(int limit) {
+            heap = new long[limit];
+        }
+
+        void offer(int doc, float score) {
+            matched++;
+            long key = ((long) Float.floatToIntBits(score) << 32) | (Integer.MAX_VALUE - doc);
+            if (size < heap.length) {
+                int i = size++;
+                while (i > 0) {
+                    int parent = (i - 1) >>> 1;
+                    if (heap[parent] <= key) break;
+                    heap[i] = heap[parent];
+                    i = parent;
+                }
+                heap[i] = key;
+            } else if (key > heap[0]) {
+                int i = 0;
+                int child;
+                while ((child = 2 * i + 1) < size) {
+                    if (child + 1 < size && heap[child + 1] < heap[child]) child++;
+                    if (key <= heap[child]) break;
+                    heap[i] = heap[child];
+                    i = child;
+                }
+                heap[i] = key;
+            }
+        }
+
+        int[] toPositions() {
+            long[] ranked = Arrays.copyOf(heap, size);
+            Arrays.sort(ranked);
+            int[] positions = new int[size];
+            for (int i = 0; i < size; i++) {
+                positions[i] = Integer.MAX_VALUE - (int) ranked[size - 1 - i];
+            }
+            return positions;
+        }
+    }
+
+    private static final class Document {
+        final int[] terms;
+        final int[] freqs;
+        final int length;
+
+        Document(int[] terms, int[] freqs, int length) {
+            this.terms = terms;
+            this.freqs = freqs;
+            this.length = length;
+        }
+    }
+}
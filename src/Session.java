@@ -0,0 +1,60 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * One shopper's state: the signed-in user and their cart. DataManager keeps one Session for the desktop
+ * UI plus any number created through its session registry, and changes a session's cart only while
+ * holding that session's monitor, so shoppers never contend with each other; the catalog they read is
+ * the shared immutable snapshot.
+ */
+public final class Session {
+    private final String id;
+    User user;
+    int cartId = -1; // Active Cart_ID for user, resolved once per login
+    boolean resolvingCart; // A background lookup of cartId is running
+    final List<CartItem> cartItems = new ArrayList<>();
+    final IntObjectMap<CartItem> cartIndex = new IntObjectMap<>();
+    long cartTotalCents; // Running sum of cartItems' totals, updated on every cart change
+    final List<CartListener> cartListeners = new CopyOnWriteArrayList<>();
+    private volatile long lastAccessMillis = System.currentTimeMillis();
+
+    Session(String id) {
+        this.id = id;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public synchronized User getUser() {
+        return user;
+    }
+
+    /** Copies of the cart's items, safe to use after other threads change the cart. */
+    public synchronized List<CartItem> getCartSnapshot() {
+        List<CartItem> snapshot = new ArrayList<>(cartItems.size());
+        for (CartItem item : cartItems) {
+            snapshot.add(new CartItem(item.getProduct(), item.getQuantity()));
+        }
+        return snapshot;
+    }
+
+    // Live read-only view for the desktop UI, which only changes its session on the EDT.
+    List<CartItem> getCartItemsView() {
+        return Collections.unmodifiableList(cartItems);
+    }
+
+    public synchronized long getCartTotalCents() {
+        return cartTotalCents;
+    }
+
+    void touch() {
+        lastAccessMillis = System.currentTimeMillis();
+    }
+
+    long getLastAccessMillis() {
+        return lastAccessMillis;
+    }
+}
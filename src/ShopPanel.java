@@ -1,22 +1,53 @@
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
 import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class ShopPanel extends JPanel {
     private ActionListener onViewCart;
     private ActionListener onLogout;
     private JButton cartButton;
-    private JPanel productsPanel;
+    private JTextField searchField;
+    private JPopupMenu suggestionsPopup;
+    private Typeahead.Lookup suggestionLookup;
+    private final int[] suggestionIds = new int[8];
+    private boolean applyingSuggestion;
+
+    private static final int SEARCH_RESULT_LIMIT = 500;
+    private JPanel filterPanel;
+    private JComboBox<SortIndex.Order> sortBox;
+    private JSlider minPriceSlider;
+    private JSlider maxPriceSlider;
+    private JLabel priceRangeLabel;
+    private final Map<FacetIndex.Facet, List<JCheckBox>> facetBoxes = new EnumMap<>(FacetIndex.Facet.class);
+    private final Map<FacetIndex.Facet, List<String>> facetValues = new EnumMap<>(FacetIndex.Facet.class);
+    private VirtualProductGrid productsPanel;
     private JPanel contentPanel;
     private CardLayout cardLayout;
-    private int quantity;
 
     public ShopPanel() {
         initializeUI();
+        // Registered before the first read so no snapshot published by the background load is missed.
+        DataManager.getInstance().addCatalogListener(catalog -> {
+            updateFilters();
+            showProducts();
+        });
         loadProducts();
+        DataManager.getInstance().addCartListener(event -> {
+            // Only adds, removals and whole-cart changes affect the item count.
+            if (event.getType() != CartEvent.Type.UPDATED) {
+                updateCartButton();
+            }
+        });
     }
 
     private void initializeUI() {
@@ -64,7 +95,32 @@ public class ShopPanel extends JPanel {
         userPanel.add(cartButton);
         userPanel.add(logoutButton);
 
+        // Search box: results are re-ranked on every keystroke
+        JPanel searchPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 8, 0));
+        searchPanel.setOpaque(false);
+        searchField = new JTextField(22);
+        searchField.setFont(new Font("SansSerif", Font.PLAIN, 14));
+        searchField.setToolTipText("Search perfumes by name or description");
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) { searchChanged(); }
+            @Override
+            public void removeUpdate(DocumentEvent e) { searchChanged(); }
+            @Override
+            public void changedUpdate(DocumentEvent e) { searchChanged(); }
+        });
+        JLabel searchLabel = new JLabel("Search:");
+        searchLabel.setFont(new Font("Arial", Font.PLAIN, 14));
+        searchLabel.setForeground(Color.WHITE);
+        searchPanel.add(searchLabel);
+        searchPanel.add(searchField);
+
+        // Suggestions below the search box; not focusable, so typing stays in the field
+        suggestionsPopup = new JPopupMenu();
+        suggestionsPopup.setFocusable(false);
+
         headerPanel.add(welcomeLabel, BorderLayout.WEST);
+        headerPanel.add(searchPanel, BorderLayout.CENTER);
         headerPanel.add(userPanel, BorderLayout.EAST);
 
         // Content panel with CardLayout
@@ -72,9 +128,8 @@ public class ShopPanel extends JPanel {
         contentPanel = new JPanel(cardLayout);
         contentPanel.setBackground(new Color(245, 247, 255));
 
-        // Products grid
-        productsPanel = new JPanel(new GridLayout(0, 3, 15, 15));
-        productsPanel.setBorder(new EmptyBorder(15, 15, 15, 15));
+        // Products grid (only the cards in view are built; they are recycled while scrolling)
+        productsPanel = new VirtualProductGrid(ProductCard::new);
         productsPanel.setBackground(new Color(245, 247, 255));
 
         JScrollPane scrollPane = new JScrollPane(productsPanel);
@@ -83,129 +138,327 @@ public class ShopPanel extends JPanel {
 
         contentPanel.add(scrollPane, "Products");
 
+        // Filter sidebar: rebuilt whenever the catalog's price bounds or facet values change
+        filterPanel = new JPanel();
+        filterPanel.setLayout(new BoxLayout(filterPanel, BoxLayout.Y_AXIS));
+        filterPanel.setBackground(new Color(250, 250, 255));
+        filterPanel.setBorder(new EmptyBorder(15, 15, 15, 15));
+        JScrollPane filterScrollPane = new JScrollPane(filterPanel);
+        filterScrollPane.setBorder(null);
+        filterScrollPane.setPreferredSize(new Dimension(200, 0));
+        filterScrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
+        // Every order is precomputed per catalog snapshot, so switching only swaps the grid's backing list
+        sortBox = new JComboBox<>(SortIndex.Order.values());
+        sortBox.setFont(new Font("SansSerif", Font.PLAIN, 12));
+        sortBox.setAlignmentX(Component.LEFT_ALIGNMENT);
+        sortBox.setMaximumSize(new Dimension(Integer.MAX_VALUE, sortBox.getPreferredSize().height));
+        sortBox.addActionListener(e -> filtersChanged());
+        updateFilters();
+
         add(headerPanel, BorderLayout.NORTH);
+        add(filterScrollPane, BorderLayout.WEST);
         add(contentPanel, BorderLayout.CENTER);
     }
 
-    private String getUserName() {
-        User user = DataManager.getInstance().getCurrentUser();
-        return (user != null && user.getName() != null) ? user.getName() : "User";
-    }
-
-    private void loadProducts() {
-        productsPanel.removeAll();
-        for (Product product : DataManager.getInstance().getProducts()) {
-            JPanel productCard = createProductCard(product, quantity);
-            productsPanel.add(productCard);
+    // Rebuilds the filter controls if the catalog's price bounds or facet values changed, keeping selections.
+    private void updateFilters() {
+        FacetIndex facets = DataManager.getInstance().getFacetIndex();
+        int low = (int) (facets.getMinPriceCents() / 100);
+        int high = (int) ((facets.getMaxPriceCents() + 99) / 100);
+        boolean changed = minPriceSlider == null || minPriceSlider.getMinimum() != low || maxPriceSlider.getMaximum() != high;
+        for (FacetIndex.Facet facet : FacetIndex.Facet.values()) {
+            changed |= !facets.getValues(facet).equals(facetValues.get(facet));
+        }
+        if (!changed) {
+            return;
         }
-        productsPanel.revalidate();
-        productsPanel.repaint();
-        cardLayout.show(contentPanel, "Products");
-    }
 
-    private JPanel createProductCard(Product product, int quantity) {
-        JPanel card = new JPanel(new BorderLayout(10, 10)) {
-            @Override
-            protected void paintComponent(Graphics g) {
-                super.paintComponent(g);
-                Graphics2D g2 = (Graphics2D) g;
-                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                g2.setColor(Color.WHITE);
-                g2.fillRoundRect(0, 0, getWidth(), getHeight(), 20, 20);
+        // Sliders left at an end stay at that end; anything else keeps its value within the new bounds.
+        int minValue = minPriceSlider == null || minPriceSlider.getValue() == minPriceSlider.getMinimum() ? low
+                : Math.max(low, Math.min(high, minPriceSlider.getValue()));
+        int maxValue = maxPriceSlider == null || maxPriceSlider.getValue() == maxPriceSlider.getMaximum() ? high
+                : Math.max(low, Math.min(high, maxPriceSlider.getValue()));
+        Map<FacetIndex.Facet, Set<String>> selected = selectedFacetValues();
+
+        filterPanel.removeAll();
+        JLabel title = new JLabel("Filters");
+        title.setFont(new Font("Serif", Font.BOLD, 18));
+        filterPanel.add(title);
+        filterPanel.add(Box.createRigidArea(new Dimension(0, 10)));
+        filterPanel.add(createFilterHeading("Sort By"));
+        filterPanel.add(sortBox);
+        filterPanel.add(Box.createRigidArea(new Dimension(0, 15)));
+
+        filterPanel.add(createFilterHeading("Price"));
+        priceRangeLabel = new JLabel();
+        priceRangeLabel.setFont(new Font("SansSerif", Font.PLAIN, 12));
+        minPriceSlider = new JSlider(low, high, minValue);
+        maxPriceSlider = new JSlider(low, high, Math.max(minValue, maxValue));
+        minPriceSlider.addChangeListener(e -> {
+            if (minPriceSlider.getValue() > maxPriceSlider.getValue()) {
+                maxPriceSlider.setValue(minPriceSlider.getValue());
             }
-        };
-        card.setOpaque(false);
-        card.setPreferredSize(new Dimension(300, 200));
-        card.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
-
-        // Product image
-        ImageIcon originalIcon = product.getImageIcon();
-        Image scaledImage = originalIcon.getImage().getScaledInstance(100, 100, Image.SCALE_SMOOTH);
-        ImageIcon resizedIcon = new ImageIcon(scaledImage);
-        JLabel imageLabel = new JLabel(resizedIcon, SwingConstants.CENTER);
-        imageLabel.setPreferredSize(new Dimension(120, 120));
-        imageLabel.setOpaque(true);
-        imageLabel.setBackground(new Color(250, 250, 250));
-        imageLabel.setBorder(BorderFactory.createLineBorder(new Color(200, 200, 200), 1));
-
-        // Hover effect for image
-        imageLabel.addMouseListener(new java.awt.event.MouseAdapter() {
-            @Override
-            public void mouseEntered(java.awt.event.MouseEvent evt) {
-                imageLabel.setBorder(BorderFactory.createLineBorder(new Color(100, 149, 237), 2));
+            filtersChanged();
+        });
+        maxPriceSlider.addChangeListener(e -> {
+            if (maxPriceSlider.getValue() < minPriceSlider.getValue()) {
+                minPriceSlider.setValue(maxPriceSlider.getValue());
             }
-            @Override
-            public void mouseExited(java.awt.event.MouseEvent evt) {
-                imageLabel.setBorder(BorderFactory.createLineBorder(new Color(200, 200, 200), 1));
+            filtersChanged();
+        });
+        for (JSlider slider : new JSlider[] {minPriceSlider, maxPriceSlider}) {
+            slider.setOpaque(false);
+            slider.setAlignmentX(Component.LEFT_ALIGNMENT);
+            filterPanel.add(slider);
+        }
+        filterPanel.add(priceRangeLabel);
+        updatePriceRangeLabel();
+
+        facetBoxes.clear();
+        for (FacetIndex.Facet facet : FacetIndex.Facet.values()) {
+            List<String> values = facets.getValues(facet);
+            facetValues.put(facet, values);
+            List<JCheckBox> boxes = new ArrayList<>();
+            facetBoxes.put(facet, boxes);
+            if (values.isEmpty()) {
+                continue;
             }
+            filterPanel.add(Box.createRigidArea(new Dimension(0, 15)));
+            filterPanel.add(createFilterHeading(facet.getLabel()));
+            Set<String> previous = selected.getOrDefault(facet, Set.of());
+            for (String value : values) {
+                JCheckBox box = new JCheckBox(value, previous.contains(value));
+                box.setOpaque(false);
+                box.setFont(new Font("SansSerif", Font.PLAIN, 12));
+                box.addActionListener(e -> filtersChanged());
+                boxes.add(box);
+                filterPanel.add(box);
+            }
+        }
+
+        filterPanel.add(Box.createRigidArea(new Dimension(0, 15)));
+        JButton clearButton = createStyledButton("Clear Filters", new Color(108, 117, 125), Color.WHITE);
+        clearButton.setFont(new Font("SansSerif", Font.BOLD, 12));
+        clearButton.addActionListener(e -> {
+            for (List<JCheckBox> boxes : facetBoxes.values()) {
+                for (JCheckBox box : boxes) box.setSelected(false);
+            }
+            minPriceSlider.setValue(minPriceSlider.getMinimum());
+            maxPriceSlider.setValue(maxPriceSlider.getMaximum());
+            filtersChanged();
         });
+        filterPanel.add(clearButton);
+        filterPanel.revalidate();
+        filterPanel.repaint();
+    }
 
-        // Product info
-        JPanel infoPanel = new JPanel();
-        infoPanel.setLayout(new BoxLayout(infoPanel, BoxLayout.Y_AXIS));
-        infoPanel.setOpaque(false);
+    private JLabel createFilterHeading(String text) {
+        JLabel heading = new JLabel(text);
+        heading.setFont(new Font("SansSerif", Font.BOLD, 14));
+        heading.setBorder(new EmptyBorder(0, 0, 5, 0));
+        return heading;
+    }
 
-        JLabel nameLabel = new JLabel(product.getName());
-        nameLabel.setFont(new Font("SansSerif", Font.BOLD, 14));
-        nameLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+    private void updatePriceRangeLabel() {
+        priceRangeLabel.setText(Money.format(minPriceSlider.getValue() * 100L) + " - " + Money.format(maxPriceSlider.getValue() * 100L));
+    }
 
-        JLabel priceLabel = new JLabel(String.format("$%.2f", product.getPrice()));
-        priceLabel.setFont(new Font("SansSerif", Font.BOLD, 14));
-        priceLabel.setForeground(new Color(34, 139, 34));
-        priceLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+    private void filtersChanged() {
+        updatePriceRangeLabel();
+        showProducts();
+        productsPanel.scrollRectToVisible(new Rectangle(0, 0, 1, 1));
+    }
 
-        JLabel descLabel = new JLabel("<html>" + product.getDescription() + "</html>");
-        descLabel.setFont(new Font("SansSerif", Font.PLAIN, 11));
-        descLabel.setForeground(new Color(80, 80, 80));
-        descLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+    private Map<FacetIndex.Facet, Set<String>> selectedFacetValues() {
+        Map<FacetIndex.Facet, Set<String>> selected = new EnumMap<>(FacetIndex.Facet.class);
+        for (Map.Entry<FacetIndex.Facet, List<JCheckBox>> entry : facetBoxes.entrySet()) {
+            Set<String> values = new HashSet<>();
+            for (JCheckBox box : entry.getValue()) {
+                if (box.isSelected()) values.add(box.getText());
+            }
+            selected.put(entry.getKey(), values);
+        }
+        return selected;
+    }
 
-        infoPanel.add(nameLabel);
-        infoPanel.add(Box.createRigidArea(new Dimension(0, 5)));
-        infoPanel.add(priceLabel);
-        infoPanel.add(Box.createRigidArea(new Dimension(0, 5)));
-        infoPanel.add(descLabel);
-
-        // Button panel
-        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 5));
-        buttonPanel.setOpaque(false);
-
-        JButton addButton = createStyledButton("Add to Cart", new Color(34, 139, 34), Color.WHITE);
-        addButton.setPreferredSize(new Dimension(110, 30));
-        addButton.addActionListener(e -> {
-            DataManager.getInstance().addToCart(product);
-            updateCartButton();
-            JOptionPane.showMessageDialog(this, product.getName() + " added to cart!");
-        });
+    // A slider left at its end means no bound, so products outside the current price range still show.
+    private FacetIndex.Filter currentFilter() {
+        long minCents = minPriceSlider.getValue() == minPriceSlider.getMinimum() ? Long.MIN_VALUE : minPriceSlider.getValue() * 100L;
+        long maxCents = maxPriceSlider.getValue() == maxPriceSlider.getMaximum() ? Long.MAX_VALUE : maxPriceSlider.getValue() * 100L;
+        return new FacetIndex.Filter(minCents, maxCents, selectedFacetValues());
+    }
 
-        JButton detailsButton = createStyledButton("View Details", new Color(0, 123, 255), Color.WHITE);
-        detailsButton.setPreferredSize(new Dimension(110, 30));
-        detailsButton.addActionListener(e -> showProductDetails(product));
+    private String getUserName() {
+        User user = DataManager.getInstance().getCurrentUser();
+        return (user != null && user.getName() != null) ? user.getName() : "User";
+    }
 
-        buttonPanel.add(addButton);
-        buttonPanel.add(detailsButton);
+    private void loadProducts() {
+        showProducts();
+        cardLayout.show(contentPanel, "Products");
+    }
 
-        card.add(imageLabel, BorderLayout.WEST);
-        card.add(infoPanel, BorderLayout.CENTER);
-        card.add(buttonPanel, BorderLayout.SOUTH);
+    // Shows the filtered catalog, or the filtered matches while a search is entered, in the selected order.
+    private void showProducts() {
+        String query = searchField.getText().trim();
+        SortIndex.Order order = (SortIndex.Order) sortBox.getSelectedItem();
+        productsPanel.setProducts(DataManager.getInstance().findProducts(query, currentFilter(), order, SEARCH_RESULT_LIMIT));
+    }
 
-        // Hover effect for card
-        card.addMouseListener(new java.awt.event.MouseAdapter() {
-            @Override
-            public void mouseEntered(java.awt.event.MouseEvent evt) {
-                card.setBorder(BorderFactory.createCompoundBorder(
-                        BorderFactory.createLineBorder(new Color(100, 149, 237), 2, true),
-                        new EmptyBorder(10, 10, 10, 10)
-                ));
-                card.setCursor(new Cursor(Cursor.HAND_CURSOR));
-            }
-            @Override
-            public void mouseExited(java.awt.event.MouseEvent evt) {
-                card.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
-                card.setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
-            }
-        });
+    private void searchChanged() {
+        showProducts();
+        productsPanel.scrollRectToVisible(new Rectangle(0, 0, 1, 1));
+        if (!applyingSuggestion) {
+            showSuggestions();
+        }
+    }
+
+    private void showSuggestions() {
+        Typeahead typeahead = DataManager.getInstance().getTypeahead();
+        if (suggestionLookup == null || suggestionLookup.getTypeahead() != typeahead) {
+            suggestionLookup = typeahead.newLookup();
+        }
+        int count = suggestionLookup.suggest(searchField.getText(), 2, suggestionIds);
+        suggestionsPopup.setVisible(false);
+        suggestionsPopup.removeAll();
+        if (count == 0 || !searchField.isShowing()) {
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            String text = typeahead.getText(suggestionIds[i]);
+            JMenuItem item = new JMenuItem(text);
+            item.addActionListener(e -> {
+                applyingSuggestion = true;
+                searchField.setText(text);
+                applyingSuggestion = false;
+                suggestionsPopup.setVisible(false);
+            });
+            suggestionsPopup.add(item);
+        }
+        suggestionsPopup.show(searchField, 0, searchField.getHeight());
+    }
+
+    // A product card built once and re-bound to different products as the grid scrolls.
+    private class ProductCard implements VirtualProductGrid.Card {
+        private final JPanel card;
+        private final JLabel imageLabel;
+        private final JLabel nameLabel;
+        private final JLabel priceLabel;
+        private final JLabel descLabel;
+        private Product product;
+
+        ProductCard() {
+            card = new JPanel(new BorderLayout(10, 10)) {
+                @Override
+                protected void paintComponent(Graphics g) {
+                    super.paintComponent(g);
+                    Graphics2D g2 = (Graphics2D) g;
+                    g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                    g2.setColor(Color.WHITE);
+                    g2.fillRoundRect(0, 0, getWidth(), getHeight(), 20, 20);
+                }
+            };
+            card.setOpaque(false);
+            card.setPreferredSize(new Dimension(300, 200));
+            card.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+            // Product image
+            imageLabel = new JLabel("", SwingConstants.CENTER);
+            imageLabel.setPreferredSize(new Dimension(120, 120));
+            imageLabel.setOpaque(true);
+            imageLabel.setBackground(new Color(250, 250, 250));
+            imageLabel.setBorder(BorderFactory.createLineBorder(new Color(200, 200, 200), 1));
+
+            // Hover effect for image
+            imageLabel.addMouseListener(new java.awt.event.MouseAdapter() {
+                @Override
+                public void mouseEntered(java.awt.event.MouseEvent evt) {
+                    imageLabel.setBorder(BorderFactory.createLineBorder(new Color(100, 149, 237), 2));
+                }
+                @Override
+                public void mouseExited(java.awt.event.MouseEvent evt) {
+                    imageLabel.setBorder(BorderFactory.createLineBorder(new Color(200, 200, 200), 1));
+                }
+            });
+
+            // Product info
+            JPanel infoPanel = new JPanel();
+            infoPanel.setLayout(new BoxLayout(infoPanel, BoxLayout.Y_AXIS));
+            infoPanel.setOpaque(false);
+
+            nameLabel = new JLabel();
+            nameLabel.setFont(new Font("SansSerif", Font.BOLD, 14));
+            nameLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+
+            priceLabel = new JLabel();
+            priceLabel.setFont(new Font("SansSerif", Font.BOLD, 14));
+            priceLabel.setForeground(new Color(34, 139, 34));
+            priceLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+
+            descLabel = new JLabel();
+            descLabel.setFont(new Font("SansSerif", Font.PLAIN, 11));
+            descLabel.setForeground(new Color(80, 80, 80));
+            descLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+
+            infoPanel.add(nameLabel);
+            infoPanel.add(Box.createRigidArea(new Dimension(0, 5)));
+            infoPanel.add(priceLabel);
+            infoPanel.add(Box.createRigidArea(new Dimension(0, 5)));
+            infoPanel.add(descLabel);
+
+            // Button panel
+            JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 5));
+            buttonPanel.setOpaque(false);
+
+            JButton addButton = createStyledButton("Add to Cart", new Color(34, 139, 34), Color.WHITE);
+            addButton.setPreferredSize(new Dimension(110, 30));
+            addButton.addActionListener(e -> {
+                DataManager.getInstance().addToCart(product);
+                JOptionPane.showMessageDialog(ShopPanel.this, product.getName() + " added to cart!");
+            });
+
+            JButton detailsButton = createStyledButton("View Details", new Color(0, 123, 255), Color.WHITE);
+            detailsButton.setPreferredSize(new Dimension(110, 30));
+            detailsButton.addActionListener(e -> showProductDetails(product));
+
+            buttonPanel.add(addButton);
+            buttonPanel.add(detailsButton);
+
+            card.add(imageLabel, BorderLayout.WEST);
+            card.add(infoPanel, BorderLayout.CENTER);
+            card.add(buttonPanel, BorderLayout.SOUTH);
+
+            // Hover effect for card
+            card.addMouseListener(new java.awt.event.MouseAdapter() {
+                @Override
+                public void mouseEntered(java.awt.event.MouseEvent evt) {
+                    card.setBorder(BorderFactory.createCompoundBorder(
+                            BorderFactory.createLineBorder(new Color(100, 149, 237), 2, true),
+                            new EmptyBorder(10, 10, 10, 10)
+                    ));
+                    card.setCursor(new Cursor(Cursor.HAND_CURSOR));
+                }
+                @Override
+                public void mouseExited(java.awt.event.MouseEvent evt) {
+                    card.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+                    card.setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
+                }
+            });
+        }
+
+        @Override
+        public JComponent getComponent() {
+            return card;
+        }
 
-        return card;
+        @Override
+        public void bind(Product product) {
+            this.product = product;
+            nameLabel.setText(product.getName());
+            priceLabel.setText(Money.format(product.getPriceCents()));
+            descLabel.setText("<html>" + product.getDescription() + "</html>");
+            bindImage(imageLabel, product, 0, ThumbnailCache.Size.CARD);
+        }
     }
 
     private void showProductDetails(Product product) {
@@ -219,11 +472,8 @@ public class ShopPanel extends JPanel {
         infoPanel.setOpaque(false);
 
         // Add primary image (index 0)
-        List<ImageIcon> imageIcons = product.getImageIcons();
-        ImageIcon primaryIcon = imageIcons.isEmpty() ? product.createPlaceholderImage() : imageIcons.get(0);
-        Image scaledPrimaryImage = primaryIcon.getImage().getScaledInstance(200, 200, Image.SCALE_FAST);
-        ImageIcon scaledPrimaryIcon = new ImageIcon(scaledPrimaryImage);
-        JLabel primaryImageLabel = new JLabel(scaledPrimaryIcon);
+        JLabel primaryImageLabel = new JLabel();
+        bindImage(primaryImageLabel, product, 0, ThumbnailCache.Size.DETAIL);
         primaryImageLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
         infoPanel.add(Box.createRigidArea(new Dimension(0, 20)));
         infoPanel.add(primaryImageLabel);
@@ -237,7 +487,7 @@ public class ShopPanel extends JPanel {
         infoPanel.add(Box.createRigidArea(new Dimension(0, 10)));
 
         // Product price
-        JLabel priceLabel = new JLabel(String.format("$%.2f", product.getPrice()));
+        JLabel priceLabel = new JLabel(Money.format(product.getPriceCents()));
         priceLabel.setFont(new Font("SansSerif", Font.BOLD, 16));
         priceLabel.setForeground(new Color(34, 139, 34));
         priceLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
@@ -274,31 +524,23 @@ public class ShopPanel extends JPanel {
         JPanel imagesPanel = new JPanel(new GridLayout(2, 1, 10, 10));
         imagesPanel.setOpaque(false);
         // Secondary image (index 1)
-        if (imageIcons.size() > 1 && imageIcons.get(1) != null) {
-            ImageIcon secondaryIcon = imageIcons.get(1);
-            Image scaledSecondaryImage = secondaryIcon.getImage().getScaledInstance(1000, 1000, Image.SCALE_FAST);
-            JLabel secondaryImageLabel = new JLabel(new ImageIcon(scaledSecondaryImage));
-            secondaryImageLabel.setBorder(BorderFactory.createLineBorder(new Color(200, 200, 200), 1));
-            imagesPanel.add(secondaryImageLabel);
+        JLabel secondaryImageLabel = new JLabel();
+        secondaryImageLabel.setBorder(BorderFactory.createLineBorder(new Color(200, 200, 200), 1));
+        if (product.getImageCount() > 1) {
+            bindImage(secondaryImageLabel, product, 1, ThumbnailCache.Size.GALLERY);
         } else {
-            Image placeholderImage = product.createPlaceholderImage().getImage().getScaledInstance(150, 150, Image.SCALE_FAST);
-            JLabel placeholderLabel = new JLabel(new ImageIcon(placeholderImage));
-            placeholderLabel.setBorder(BorderFactory.createLineBorder(new Color(200, 200, 200), 1));
-            imagesPanel.add(placeholderLabel);
+            secondaryImageLabel.setIcon(ThumbnailCache.placeholder(ThumbnailCache.Size.PLACEHOLDER));
         }
+        imagesPanel.add(secondaryImageLabel);
         // Tertiary image (index 2)
-        if (imageIcons.size() > 2 && imageIcons.get(2) != null) {
-            ImageIcon tertiaryIcon = imageIcons.get(2);
-            Image scaledTertiaryImage = tertiaryIcon.getImage().getScaledInstance(1200, 1000, Image.SCALE_FAST);
-            JLabel tertiaryImageLabel = new JLabel(new ImageIcon(scaledTertiaryImage));
-            tertiaryImageLabel.setBorder(BorderFactory.createLineBorder(new Color(200, 200, 200), 1));
-            imagesPanel.add(tertiaryImageLabel);
+        JLabel tertiaryImageLabel = new JLabel();
+        tertiaryImageLabel.setBorder(BorderFactory.createLineBorder(new Color(200, 200, 200), 1));
+        if (product.getImageCount() > 2) {
+            bindImage(tertiaryImageLabel, product, 2, ThumbnailCache.Size.GALLERY_WIDE);
         } else {
-            Image placeholderImage = product.createPlaceholderImage().getImage().getScaledInstance(150, 150, Image.SCALE_FAST);
-            JLabel placeholderLabel = new JLabel(new ImageIcon(placeholderImage));
-            placeholderLabel.setBorder(BorderFactory.createLineBorder(new Color(200, 200, 200), 1));
-            imagesPanel.add(placeholderLabel);
+            tertiaryImageLabel.setIcon(ThumbnailCache.placeholder(ThumbnailCache.Size.PLACEHOLDER));
         }
+        imagesPanel.add(tertiaryImageLabel);
         descPanel.add(imagesPanel);
 
         // Add description panel to info panel
@@ -322,6 +564,23 @@ public class ShopPanel extends JPanel {
         cardLayout.show(contentPanel, "Details_" + product.getProductId());
     }
 
+    // Shows a placeholder right away and swaps in the pre-scaled thumbnail once it is ready.
+    // Late results are dropped if the label has been re-bound to another product in the meantime.
+    private void bindImage(JLabel label, Product product, int index, ThumbnailCache.Size size) {
+        label.putClientProperty("boundProduct", product);
+        label.setIcon(ThumbnailCache.placeholder(size));
+        product.loadThumbnail(index, size, preview -> setIconIfBound(label, product, preview))
+                .thenAccept(icon -> setIconIfBound(label, product, icon));
+    }
+
+    private void setIconIfBound(JLabel label, Product product, ImageIcon icon) {
+        SwingUtilities.invokeLater(() -> {
+            if (label.getClientProperty("boundProduct") == product) {
+                label.setIcon(icon);
+            }
+        });
+    }
+
     private JButton createStyledButton(String text, Color bg, Color fg) {
         JButton button = new JButton(text) {
             @Override
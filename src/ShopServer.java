@@ -0,0 +1,491 @@
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsExchange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless JSON API over DataManager, on the JDK's built-in HTTP server. Each request runs on its own
+ * virtual thread (JDK 21+; otherwise a bounded pool), so handlers simply block on JDBC. Shoppers are
+ * told apart by a session cookie backed by DataManager's session registry.
+ *
+ * <pre>
+ * GET    /api/products?q=&amp;sort=&amp;minPrice=&amp;maxPrice=&amp;brand=&amp;gender=&amp;family=&amp;offset=&amp;limit=
+ * GET    /api/products/{id}
+ * POST   /api/login              {"email": ..., "password": ...}
+ * POST   /api/logout
+ * GET    /api/cart
+ * POST   /api/cart/items         {"productId": ..., "quantity": ...}   quantity defaults to adding one
+ * PUT    /api/cart/items/{id}    {"quantity": ...}
+ * DELETE /api/cart/items/{id}
+ * DELETE /api/cart
+ * POST   /api/checkout
+ * GET    /assets/{image path}[?size=card|detail|gallery|gallery_wide]   see AssetHandler
+ * </pre>
+ */
+public final class ShopServer {
+    private static final String SESSION_COOKIE = "PERFUMIA_SESSION";
+    private static final int MAX_BODY_BYTES = Integer.getInteger("server.maxBodyBytes", 16 * 1024);
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+
+    private final DataManager dataManager;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private ShopServer(DataManager dataManager, HttpServer server, ExecutorService executor) {
+        this.dataManager = dataManager;
+        this.server = server;
+        this.executor = executor;
+    }
+
+    /**
+     * Starts serving on port. Connection limits come from the JDK server's own settings, which are read
+     * once when the first server is created; defaults are filled in here unless set on the command line:
+     * idle keep-alive connections are closed after server.keepAliveSeconds (default 30), at most
+     * server.maxIdleConnections (default 200) are kept, and a request must arrive within
+     * server.maxRequestSeconds (default 10) with at most 100 headers.
+     */
+    public static ShopServer start(int port) throws IOException {
+        setDefault("sun.net.httpserver.idleInterval", System.getProperty("server.keepAliveSeconds", "30"));
+        setDefault("sun.net.httpserver.maxIdleConnections", System.getProperty("server.maxIdleConnections", "200"));
+        setDefault("sun.net.httpserver.maxReqTime", System.getProperty("server.maxRequestSeconds", "10"));
+        setDefault("sun.net.httpserver.maxReqHeaders", "100");
+
+        HttpServer http = HttpServer.create(new InetSocketAddress(port), Integer.getInteger("server.backlog", 1024));
+        ExecutorService executor = createRequestExecutor();
+        ShopServer shop = new ShopServer(DataManager.getInstance(), http, executor);
+        http.createContext("/api/", shop::handle);
+        http.createContext("/assets/", new AssetHandler());
+        http.setExecutor(executor);
+        http.start();
+        System.out.println("Shop API listening on port " + http.getAddress().getPort());
+        return shop;
+    }
+
+    private static void setDefault(String property, String value) {
+        if (System.getProperty(property) == null) {
+            System.setProperty(property, value);
+        }
+    }
+
+    // One virtual thread per request on JDK 21+, otherwise a fixed pool of server.threads platform threads.
+    private static ExecutorService createRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threadCount = new AtomicInteger();
+            return Executors.newFixedThreadPool(Integer.getInteger("server.threads", 64), r -> {
+                Thread t = new Thread(r, "http-request-" + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /** Stops accepting requests, waits up to delaySeconds for running ones, and releases the worker threads. */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            byte[] body = readBody(exchange);
+            if (body == null) {
+                exchange.getResponseHeaders().set("Connection", "close"); // The rest of the body is not read
+                sendError(exchange, 413, "Request body exceeds " + MAX_BODY_BYTES + " bytes");
+                return;
+            }
+            route(exchange, new String(body, StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException | ArithmeticException | ClassCastException e) {
+            sendError(exchange, 400, e.getMessage() == null ? "Bad request" : e.getMessage());
+        } catch (RuntimeException e) {
+            System.err.println("Request failed: " + exchange.getRequestMethod() + " " + exchange.getRequestURI());
+            e.printStackTrace();
+            sendError(exchange, 500, "Internal error");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void route(HttpExchange exchange, String body) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        String[] parts = path.substring("/api/".length()).split("/");
+
+        switch (parts[0]) {
+            case "products" -> {
+                if (!method.equals("GET")) {
+                    sendError(exchange, 405, "Method not allowed");
+                } else if (parts.length == 1) {
+                    listProducts(exchange);
+                } else if (parts.length == 2) {
+                    getProduct(exchange, parseId(parts[1]));
+                } else {
+                    sendError(exchange, 404, "Not found");
+                }
+            }
+            case "login" -> {
+                if (!method.equals("POST")) {
+                    sendError(exchange, 405, "Method not allowed");
+                    return;
+                }
+                Map<String, Object> json = Json.parseObject(body);
+                Session session = dataManager.openSession(string(json, "email"), string(json, "password"));
+                if (session == null) {
+                    sendError(exchange, 401, "Invalid email or password");
+                    return;
+                }
+                // Always a fresh session ID, never the one the client presented, so it cannot be fixed in advance.
+                Session previous = session(exchange);
+                if (previous != null) {
+                    dataManager.closeSession(previous.getId());
+                }
+                setSessionCookie(exchange, session.getId(), -1);
+                sendCart(exchange, session);
+            }
+            case "logout" -> {
+                if (!method.equals("POST")) {
+                    sendError(exchange, 405, "Method not allowed");
+                    return;
+                }
+                Session session = session(exchange);
+                if (session != null) {
+                    dataManager.closeSession(session.getId());
+                }
+                setSessionCookie(exchange, "", 0);
+                send(exchange, 200, "{\"loggedOut\":true}");
+            }
+            case "cart" -> cart(exchange, method, parts, body);
+            case "checkout" -> {
+                if (!method.equals("POST")) {
+                    sendError(exchange, 405, "Method not allowed");
+                    return;
+                }
+                Session session = signedIn(exchange);
+                if (session == null) return;
+                if (session.getCartSnapshot().isEmpty()) {
+                    sendError(exchange, 409, "Cart is empty");
+                } else if (dataManager.checkout(session)) {
+                    send(exchange, 200, "{\"placed\":true}");
+                } else {
+                    sendError(exchange, 500, "Checkout failed");
+                }
+            }
+            default -> sendError(exchange, 404, "Not found");
+        }
+    }
+
+    private void cart(HttpExchange exchange, String method, String[] parts, String body) throws IOException {
+        Session session = signedIn(exchange);
+        if (session == null) return;
+
+        if (parts.length == 1) {
+            switch (method) {
+                case "GET" -> sendCart(exchange, session);
+                case "DELETE" -> {
+                    if (dataManager.clearCart(session)) {
+                        sendCart(exchange, session);
+                    } else {
+                        sendError(exchange, 500, "Failed to clear cart");
+                    }
+                }
+                default -> sendError(exchange, 405, "Method not allowed");
+            }
+            return;
+        }
+        if (!parts[1].equals("items") || parts.length > 3) {
+            sendError(exchange, 404, "Not found");
+            return;
+        }
+
+        if (parts.length == 2) {
+            if (!method.equals("POST")) {
+                sendError(exchange, 405, "Method not allowed");
+                return;
+            }
+            Map<String, Object> json = Json.parseObject(body);
+            Product product = dataManager.getProduct(integer(json, "productId"));
+            if (product == null) {
+                sendError(exchange, 404, "Unknown product");
+                return;
+            }
+            if (json.get("quantity") == null) {
+                dataManager.addToCart(session, product);
+            } else {
+                int quantity = positive(integer(json, "quantity"));
+                synchronized (session) { // Add-then-set must not interleave with another request on this session
+                    if (dataManager.getCartItem(session, product.getProductId()) == null) {
+                        dataManager.addToCart(session, product);
+                    }
+                    dataManager.updateQuantity(session, product.getProductId(), quantity);
+                }
+            }
+            sendCart(exchange, session);
+            return;
+        }
+
+        int productId = parseId(parts[2]);
+        if (dataManager.getCartItem(session, productId) == null) {
+            sendError(exchange, 404, "Product is not in the cart");
+            return;
+        }
+        switch (method) {
+            case "PUT" -> {
+                int quantity = positive(integer(Json.parseObject(body), "quantity"));
+                dataManager.updateQuantity(session, productId, quantity);
+                sendCart(exchange, session);
+            }
+            case "DELETE" -> {
+                dataManager.removeProductFromCart(session, productId);
+                sendCart(exchange, session);
+            }
+            default -> sendError(exchange, 405, "Method not allowed");
+        }
+    }
+
+    private void listProducts(HttpExchange exchange) throws IOException {
+        Map<String, List<String>> params = queryParameters(exchange);
+        int offset = Math.max(0, intParam(params, "offset", 0));
+        int limit = Math.min(MAX_PAGE_SIZE, Math.max(1, intParam(params, "limit", DEFAULT_PAGE_SIZE)));
+        SortIndex.Order order = SortIndex.Order.FEATURED;
+        String sort = first(params, "sort");
+        if (sort != null) {
+            order = SortIndex.Order.valueOf(sort.toUpperCase(Locale.ROOT));
+        }
+
+        String min = first(params, "minPrice");
+        String max = first(params, "maxPrice");
+        Map<FacetIndex.Facet, Set<String>> selected = new EnumMap<>(FacetIndex.Facet.class);
+        for (FacetIndex.Facet facet : FacetIndex.Facet.values()) {
+            Set<String> values = new HashSet<>();
+            for (String value : params.getOrDefault(facet.name().toLowerCase(Locale.ROOT), List.of())) {
+                for (String part : value.split(",")) {
+                    if (!part.isBlank()) values.add(part.trim());
+                }
+            }
+            selected.put(facet, values);
+        }
+        FacetIndex.Filter filter = new FacetIndex.Filter(
+                min == null ? Long.MIN_VALUE : Money.toCents(new BigDecimal(min)),
+                max == null ? Long.MAX_VALUE : Money.toCents(new BigDecimal(max)),
+                selected);
+
+        DataManager.ProductPage page = dataManager.findProductPage(first(params, "q"), filter, order, offset, limit);
+        List<Product> products = page.getProducts();
+        StringBuilder out = new StringBuilder(256 + 256 * products.size());
+        out.append("{\"total\":").append(page.getTotal()).append(",\"offset\":").append(offset).append(",\"products\":[");
+        for (int i = 0; i < products.size(); i++) {
+            if (i > 0) out.append(',');
+            appendProduct(out, products.get(i));
+        }
+        out.append("]}");
+        send(exchange, 200, out.toString());
+    }
+
+    private void getProduct(HttpExchange exchange, int productId) throws IOException {
+        Product product = dataManager.getProduct(productId);
+        if (product == null) {
+            sendError(exchange, 404, "Unknown product");
+            return;
+        }
+        send(exchange, 200, appendProduct(new StringBuilder(), product).toString());
+    }
+
+    private void sendCart(HttpExchange exchange, Session session) throws IOException {
+        List<CartItem> items;
+        long totalCents;
+        User user;
+        synchronized (session) { // Items and total from the same moment
+            items = session.getCartSnapshot();
+            totalCents = session.getCartTotalCents();
+            user = session.getUser();
+        }
+        StringBuilder out = new StringBuilder(128 + 320 * items.size());
+        out.append("{\"user\":");
+        if (user == null) {
+            out.append("null");
+        } else {
+            out.append("{\"id\":").append(user.getUserId()).append(",\"name\":");
+            Json.quote(out, user.getName()).append(",\"email\":");
+            Json.quote(out, user.getEmail()).append('}');
+        }
+        out.append(",\"items\":[");
+        for (int i = 0; i < items.size(); i++) {
+            CartItem item = items.get(i);
+            if (i > 0) out.append(',');
+            out.append("{\"product\":");
+            appendProduct(out, item.getProduct());
+            out.append(",\"quantity\":").append(item.getQuantity())
+                    .append(",\"total\":").append(Money.toDecimal(item.getTotalCents()).toPlainString()).append('}');
+        }
+        out.append("],\"total\":").append(Money.toDecimal(totalCents).toPlainString()).append('}');
+        send(exchange, 200, out.toString());
+    }
+
+    private static StringBuilder appendProduct(StringBuilder out, Product product) {
+        out.append("{\"id\":").append(product.getProductId()).append(",\"name\":");
+        Json.quote(out, product.getName()).append(",\"price\":").append(Money.toDecimal(product.getPriceCents()).toPlainString());
+        out.append(",\"description\":");
+        Json.quote(out, product.getDescription()).append(",\"brand\":");
+        Json.quote(out, product.getBrand()).append(",\"gender\":");
+        Json.quote(out, product.getGender()).append(",\"family\":");
+        Json.quote(out, product.getFamily()).append(",\"images\":[");
+        List<String> paths = product.getImagePaths();
+        for (int i = 0; i < paths.size(); i++) {
+            if (i > 0) out.append(',');
+            Json.quote(out, "/assets/" + paths.get(i));
+        }
+        return out.append("]}");
+    }
+
+    // === Sessions ===
+
+    // The caller's live session from its cookie, or null. Sessions are only ever created by a successful login.
+    private Session session(HttpExchange exchange) {
+        for (String header : exchange.getRequestHeaders().getOrDefault("Cookie", List.of())) {
+            for (String cookie : header.split(";")) {
+                int eq = cookie.indexOf('=');
+                if (eq > 0 && cookie.substring(0, eq).trim().equals(SESSION_COOKIE)) {
+                    Session session = dataManager.getSession(cookie.substring(eq + 1).trim());
+                    if (session != null) return session;
+                }
+            }
+        }
+        return null;
+    }
+
+    // maxAge -1 keeps the cookie for the browser session, 0 deletes it. Secure over TLS, or when
+    // server.secureCookies is set because TLS ends at a proxy in front of this server.
+    private static void setSessionCookie(HttpExchange exchange, String value, int maxAge) {
+        StringBuilder cookie = new StringBuilder(SESSION_COOKIE).append('=').append(value).append("; Path=/");
+        if (maxAge >= 0) {
+            cookie.append("; Max-Age=").append(maxAge);
+        }
+        cookie.append("; HttpOnly; SameSite=Lax");
+        if (exchange instanceof HttpsExchange || Boolean.getBoolean("server.secureCookies")) {
+            cookie.append("; Secure");
+        }
+        exchange.getResponseHeaders().add("Set-Cookie", cookie.toString());
+    }
+
+    private Session signedIn(HttpExchange exchange) throws IOException {
+        Session session = session(exchange);
+        if (session == null || session.getUser() == null) {
+            sendError(exchange, 401, "Not logged in");
+            return null;
+        }
+        return session;
+    }
+
+    // === Request parsing ===
+
+    // Returns null if the body is larger than MAX_BODY_BYTES. Bodies are always read to the end (or
+    // rejected), which the JDK server needs in order to reuse the connection.
+    private static byte[] readBody(HttpExchange exchange) throws IOException {
+        String length = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (length != null) {
+            try {
+                if (Long.parseLong(length.trim()) > MAX_BODY_BYTES) return null;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid Content-Length");
+            }
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        try (InputStream in = exchange.getRequestBody()) {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                if (body.size() + n > MAX_BODY_BYTES) return null;
+                body.write(buffer, 0, n);
+            }
+        }
+        return body.toByteArray();
+    }
+
+    private static Map<String, List<String>> queryParameters(HttpExchange exchange) {
+        Map<String, List<String>> params = new LinkedHashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.computeIfAbsent(name, k -> new ArrayList<>()).add(value);
+        }
+        return params;
+    }
+
+    private static String first(Map<String, List<String>> params, String name) {
+        List<String> values = params.get(name);
+        return values == null || values.isEmpty() || values.get(0).isEmpty() ? null : values.get(0);
+    }
+
+    private static int intParam(Map<String, List<String>> params, String name, int defaultValue) {
+        String value = first(params, name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    private static int parseId(String value) {
+        return Integer.parseInt(value);
+    }
+
+    private static String string(Map<String, Object> json, String name) {
+        Object value = json.get(name);
+        if (!(value instanceof String)) throw new IllegalArgumentException("Missing string property: " + name);
+        return (String) value;
+    }
+
+    private static int integer(Map<String, Object> json, String name) {
+        Object value = json.get(name);
+        if (!(value instanceof BigDecimal)) throw new IllegalArgumentException("Missing number property: " + name);
+        return ((BigDecimal) value).intValueExact();
+    }
+
+    private static int positive(int quantity) {
+        if (quantity <= 0) throw new IllegalArgumentException("quantity must be positive");
+        return quantity;
+    }
+
+    // === Responses ===
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        StringBuilder out = new StringBuilder("{\"error\":");
+        Json.quote(out, message).append('}');
+        send(exchange, status, out.toString());
+    }
+
+    // Fixed-length responses, so the connection can be kept alive for the client's next request.
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("Content-Type", "application/json; charset=utf-8");
+        headers.set("Cache-Control", "no-store");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Precomputed orderings of one Catalog snapshot. Every sort order is an int permutation of catalog
+ * positions built once per snapshot, so switching the grid's order only swaps which permutation backs
+ * the list it is showing; nothing is sorted and no product is copied.
+ */
+public final class SortIndex {
+    public enum Order {
+        FEATURED("Featured"),
+        PRICE_LOW("Price: Low to High"),
+        PRICE_HIGH("Price: High to Low"),
+        NAME("Name"),
+        NEWEST("Newest"),
+        POPULAR("Best Selling");
+
+        private final String label;
+
+        Order(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    static final SortIndex EMPTY = build(Catalog.EMPTY, FacetIndex.EMPTY);
+
+    private final Catalog catalog;
+    private final Map<Order, int[]> permutations = new EnumMap<>(Order.class); // Positions in display order; FEATURED is catalog order
+    private final Map<Order, int[]> ranks = new EnumMap<>(Order.class);        // Inverse: position -> display index
+
+    private SortIndex(Catalog catalog) {
+        this.catalog = catalog;
+    }
+
+    /** Builds the orderings for catalog; the price order is taken from facets, which must index the same snapshot. */
+    public static SortIndex build(Catalog catalog, FacetIndex facets) {
+        int count = catalog.size();
+        SortIndex index = new SortIndex(catalog);
+        int[] byPrice = facets.positionsByPrice();
+        index.put(Order.PRICE_LOW, byPrice);
+        int[] byPriceDescending = new int[count];
+        for (int i = 0; i < count; i++) {
+            byPriceDescending[i] = byPrice[count - 1 - i];
+        }
+        index.put(Order.PRICE_HIGH, byPriceDescending);
+
+        // Names are lower-cased once up front; comparing case-insensitively inside the sort costs far more.
+        String[] names = new String[count];
+        Integer[] byName = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            String name = catalog.getAt(i).getName();
+            names[i] = name == null ? "" : name.toLowerCase(Locale.ROOT);
+            byName[i] = i;
+        }
+        Arrays.sort(byName, (a, b) -> names[a].compareTo(names[b]));
+        index.put(Order.NAME, Arrays.stream(byName).mapToInt(Integer::intValue).toArray());
+
+        // Newest is highest P_ID first: IDs are assigned in insertion order and the catalog has no creation date.
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = ((long) -catalog.getAt(i).getProductId() << 32) | i;
+        }
+        index.put(Order.NEWEST, sortedPositions(keys));
+        for (int i = 0; i < count; i++) {
+            keys[i] = ((long) -catalog.getSales(i) << 32) | i;
+        }
+        index.put(Order.POPULAR, sortedPositions(keys));
+        return index;
+    }
+
+    /**
+     * The orderings for snapshot, a catalog with the same products at the same positions as this index's
+     * whose names are unchanged, e.g. after a delta refresh that only changed prices or sales. facets must
+     * index snapshot. Orders that cannot have changed are shared; the price orders are taken from facets
+     * if repriced, and only the positions in resold are moved in the popularity order, so nothing is
+     * sorted beyond the changed positions.
+     */
+    SortIndex withChanges(Catalog snapshot, FacetIndex facets, boolean repriced, BitSet resold) {
+        SortIndex index = new SortIndex(snapshot);
+        index.permutations.putAll(permutations);
+        index.ranks.putAll(ranks);
+        if (repriced) {
+            int count = snapshot.size();
+            int[] byPrice = facets.positionsByPrice();
+            index.put(Order.PRICE_LOW, byPrice);
+            int[] byPriceDescending = new int[count];
+            for (int i = 0; i < count; i++) {
+                byPriceDescending[i] = byPrice[count - 1 - i];
+            }
+            index.put(Order.PRICE_HIGH, byPriceDescending);
+        }
+        if (!resold.isEmpty()) {
+            index.put(Order.POPULAR, reorder(permutations.get(Order.POPULAR), resold, (a, b) -> {
+                int bySales = Integer.compare(snapshot.getSales(b), snapshot.getSales(a));
+                return bySales != 0 ? bySales : Integer.compare(a, b);
+            }));
+        }
+        return index;
+    }
+
+    /**
+     * Returns permutation with the positions in moved taken out and merged back in where order puts them
+     * now. order must be a total order that the other positions still follow. Costs one pass plus a sort
+     * of the moved positions.
+     */
+    static int[] reorder(int[] permutation, BitSet moved, IntBinaryOperator order) {
+        Integer[] movedPositions = moved.stream().boxed().toArray(Integer[]::new);
+        Arrays.sort(movedPositions, (a, b) -> order.applyAsInt(a, b));
+        int[] result = new int[permutation.length];
+        int count = 0;
+        int next = 0;
+        for (int position : permutation) {
+            if (moved.get(position)) {
+                continue;
+            }
+            while (next < movedPositions.length && order.applyAsInt(movedPositions[next], position) < 0) {
+                result[count++] = movedPositions[next++];
+            }
+            result[count++] = position;
+        }
+        while (next < movedPositions.length) {
+            result[count++] = movedPositions[next++];
+        }
+        return result;
+    }
+
+    // keys are (sort key << 32 | position); ties keep catalog order.
+    private static int[] sortedPositions(long[] keys) {
+        Arrays.sort(keys);
+        int[] positions = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            positions[i] = (int) keys[i];
+        }
+        return positions;
+    }
+
+    private void put(Order order, int[] permutation) {
+        int[] rank = new int[permutation.length];
+        for (int i = 0; i < permutation.length; i++) {
+            rank[permutation[i]] = i;
+        }
+        permutations.put(order, permutation);
+        ranks.put(order, rank);
+    }
+
+    public Catalog getCatalog() {
+        return catalog;
+    }
+
+    /** The whole catalog in order, or only the positions set in allowed (null allows all). */
+    public List<Product> select(Order order, BitSet allowed) {
+        if (order == Order.FEATURED) {
+            return allowed == null ? catalog.getProducts() : toProducts(allowed.stream().toArray());
+        }
+        int[] permutation = permutations.get(order);
+        if (allowed == null) {
+            return toProducts(permutation);
+        }
+        int[] selected = new int[allowed.cardinality()];
+        int count = 0;
+        for (int position : permutation) {
+            if (allowed.get(position)) {
+                selected[count++] = position;
+            }
+        }
+        return toProducts(selected);
+    }
+
+    /** Reorders positions (for example ranked search hits) into order; FEATURED keeps them as they are. */
+    public int[] sort(Order order, int[] positions) {
+        if (order == Order.FEATURED) {
+            return positions;
+        }
+        int[] rank = ranks.get(order);
+        int[] permutation = permutations.get(order);
+        int[] sorted = new int[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            sorted[i] = rank[positions[i]];
+        }
+        Arrays.sort(sorted);
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = permutation[sorted[i]];
+        }
+        return sorted;
+    }
+
+    /** A read-only list of the products at positions, backed by the array. */
+    public List<Product> toProducts(int[] positions) {
+        return new AbstractList<Product>() {
+            @Override
+            public Product get(int i) {
+                return catalog.getAt(positions[i]);
+            }
+
+            @Override
+            public int size() {
+                return positions.length;
+            }
+        };
+    }
+}
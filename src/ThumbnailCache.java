@@ -0,0 +1,239 @@
+import javax.imageio.ImageIO;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Produces the standard UI sizes of product images once and keeps them in two tiers:
+ * ImageCache in memory and PNG files on disk (thumbnail.cache.dir), keyed by the SHA-256 of the
+ * source file and the target size. A warm disk cache means the source is never decoded; a cold one decodes it
+ * subsampled via ImageDecoder rather than at full resolution. Concurrent requests for the same thumbnail
+ * share one generation.
+ */
+public final class ThumbnailCache {
+    public enum Size {
+        CARD(100, 100),
+        DETAIL(200, 200),
+        GALLERY(1000, 1000),
+        GALLERY_WIDE(1200, 1000),
+        PLACEHOLDER(150, 150);
+
+        final int width;
+        final int height;
+
+        Size(int width, int height) {
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    private static final File CACHE_DIR = new File(System.getProperty("thumbnail.cache.dir",
+            System.getProperty("user.home") + File.separator + ".perfumia" + File.separator + "thumbnails"));
+
+    private static final Map<String, String> sourceHashes = new ConcurrentHashMap<>();
+    private static final Map<Size, ImageIcon> placeholders = new ConcurrentHashMap<>();
+    private static final Map<String, CompletableFuture<ImageIcon>> inFlight = new ConcurrentHashMap<>();
+
+    private static final int PREFETCH_LIMIT = Integer.getInteger("thumbnail.prefetchLimit", 500);
+    // One prefetch generation at a time, so visible cards never queue behind more than one of them.
+    private static final ExecutorService prefetcher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "thumbnail-prefetch");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    private ThumbnailCache() {
+    }
+
+    /** Scaled copy of the shared placeholder at the given size. */
+    public static ImageIcon placeholder(Size size) {
+        return placeholders.computeIfAbsent(size, s -> {
+            BufferedImage source = (BufferedImage) ImageCache.placeholder().getImage();
+            return new ImageIcon(downscale(source, s.width, s.height));
+        });
+    }
+
+    /** Returns the thumbnail of the image at path, generating and persisting it off the EDT if needed. */
+    public static CompletableFuture<ImageIcon> load(String path, Size size) {
+        return load(path, size, null);
+    }
+
+    /**
+     * Like load(path, size), but for progressive sources onPreview (if not null) first receives a
+     * low-resolution version, on a worker thread, while the full decode is still running. A caller that
+     * joins a generation already in progress gets no preview.
+     */
+    public static CompletableFuture<ImageIcon> load(String path, Size size, Consumer<ImageIcon> onPreview) {
+        String hash = sourceHashes.get(path);
+        if (hash != null) {
+            ImageIcon cached = ImageCache.getDerived(key(hash, size));
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
+            }
+        }
+        String loadKey = path + "@" + size;
+        CompletableFuture<ImageIcon> future = new CompletableFuture<>();
+        CompletableFuture<ImageIcon> running = inFlight.putIfAbsent(loadKey, future);
+        if (running != null) {
+            return running;
+        }
+        CompletableFuture.supplyAsync(() -> generate(path, size, onPreview), ImageLoader.executor()).whenComplete((icon, error) -> {
+            inFlight.remove(loadKey, future);
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                future.complete(icon);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Generates the primary image of up to thumbnail.prefetchLimit products (default 500) at size in the
+     * background, e.g. right after the catalog loads. Runs one image at a time at low priority, so cards
+     * being shown are not held up, and not at all when headless, where nothing is shown.
+     */
+    public static void prefetch(List<Product> products, Size size) {
+        if (GraphicsEnvironment.isHeadless() || products.isEmpty()) {
+            return;
+        }
+        List<Product> batch = products.subList(0, Math.min(products.size(), PREFETCH_LIMIT));
+        prefetcher.execute(() -> {
+            for (Product product : batch) {
+                List<String> paths = product.getImagePaths();
+                if (!paths.isEmpty()) {
+                    load(paths.get(0), size).exceptionally(e -> null).join();
+                }
+            }
+        });
+    }
+
+    /**
+     * The thumbnail's PNG in the disk cache, generating it first if needed; null if the source is missing
+     * or the file could not be written. Blocks the calling thread.
+     */
+    static File diskFile(String path, Size size) {
+        load(path, size).join();
+        String hash = sourceHashes.get(path);
+        if (hash == null) {
+            return null;
+        }
+        File file = new File(CACHE_DIR, key(hash, size) + ".png");
+        if (!file.isFile()) {
+            ImageIcon icon = ImageCache.getDerived(key(hash, size));
+            if (icon == null || !(icon.getImage() instanceof BufferedImage)) {
+                return null;
+            }
+            store(file, (BufferedImage) icon.getImage()); // Was in memory only, e.g. the cache dir was cleared
+        }
+        return file.isFile() ? file : null;
+    }
+
+    private static ImageIcon generate(String path, Size size, Consumer<ImageIcon> onPreview) {
+        try {
+            ByteBuffer data = null;
+            String hash = sourceHashes.get(path);
+            if (hash == null) {
+                data = ImageLoader.readAsset(path);
+                if (data == null) {
+                    return placeholder(size);
+                }
+                hash = ImageLoader.contentHash(path, data);
+                sourceHashes.put(path, hash);
+            }
+
+            String key = key(hash, size);
+            ImageIcon icon = ImageCache.getDerived(key);
+            if (icon != null) {
+                return icon;
+            }
+
+            File file = new File(CACHE_DIR, key + ".png");
+            if (file.isFile()) {
+                BufferedImage thumb = ImageIO.read(file);
+                if (thumb != null) {
+                    icon = new ImageIcon(thumb);
+                    ImageCache.putDerived(key, icon);
+                    return icon;
+                }
+            }
+
+            if (data == null) {
+                data = ImageLoader.readAsset(path);
+                if (data == null) {
+                    return placeholder(size);
+                }
+            }
+            // Subsampled decode: the raster is only ever a small multiple of the thumbnail size.
+            Consumer<BufferedImage> firstPass = onPreview == null ? null
+                    : pass -> onPreview.accept(new ImageIcon(downscale(pass, size.width, size.height)));
+            BufferedImage decoded = ImageDecoder.decode(data, size.width, size.height, null, firstPass);
+            if (decoded == null) {
+                System.out.println("Could not load image: " + path);
+                return placeholder(size);
+            }
+            BufferedImage thumb = downscale(decoded, size.width, size.height);
+            icon = new ImageIcon(thumb);
+            ImageCache.putDerived(key, icon);
+            store(file, thumb);
+            return icon;
+        } catch (IOException e) {
+            System.out.println("Could not create thumbnail: " + path);
+            return placeholder(size);
+        }
+    }
+
+    private static void store(File file, BufferedImage thumb) {
+        try {
+            if (!CACHE_DIR.isDirectory() && !CACHE_DIR.mkdirs()) {
+                return;
+            }
+            // Write to a temp file first so a concurrent reader never sees a partial PNG.
+            File tmp = new File(CACHE_DIR, file.getName() + "." + Thread.currentThread().getId() + ".tmp");
+            ImageIO.write(thumb, "png", tmp);
+            if (!tmp.renameTo(file)) {
+                tmp.delete();
+            }
+        } catch (IOException e) {
+            System.out.println("Could not write thumbnail: " + file.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Bilinear scaling in steps of at most 2x, which stays close to SCALE_SMOOTH quality at a fraction
+     * of its cost. Output is always exactly width x height, like getScaledInstance.
+     */
+    static BufferedImage downscale(BufferedImage source, int width, int height) {
+        int type = source.getTransparency() == Transparency.OPAQUE ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+        BufferedImage current = source;
+        int w = source.getWidth();
+        int h = source.getHeight();
+        do {
+            w = w > width ? Math.max(width, w / 2) : width;
+            h = h > height ? Math.max(height, h / 2) : height;
+            BufferedImage step = new BufferedImage(w, h, type);
+            Graphics2D g2 = step.createGraphics();
+            g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g2.drawImage(current, 0, 0, w, h, null);
+            g2.dispose();
+            current = step;
+        } while (w != width || h != height);
+        return current;
+    }
+
+    private static String key(String hash, Size size) {
+        return hash + "_" + size.width + "x" + size.height;
+    }
+}
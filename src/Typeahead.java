@@ -0,0 +1,325 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-keystroke suggestions for the search box: full product names plus the words in them, which
+ * include brands such as "Versace" or "Hermès". Keys are stored in an array-backed trie laid out in
+ * preorder, and every node records the most popular suggestion below it, so the top k for a prefix are
+ * found best-first without walking the whole subtree. Lookups tolerate a bounded number of typos
+ * (insertions, deletions, substitutions and swapped neighbours) and only use the scratch arrays of a
+ * Lookup, so they do not allocate.
+ */
+public final class Typeahead {
+    public static final int MAX_SUGGESTIONS = 16;
+    private static final int MAX_KEY_LENGTH = 48;
+    private static final int MAX_QUERY_LENGTH = 32;
+    private static final int MAX_MATCHED_NODES = 512;
+    private static final int FRONTIER_CAPACITY = 64;
+    private static final int NONE = Integer.MAX_VALUE;
+    // Accent folding for U+00C0..U+00FF, e.g. 'è' -> 'e'; the multiplication and division signs become separators.
+    private static final String LATIN1_FOLD = "aaaaaaaceeeeiiiidnooooo ouuuuyts" + "aaaaaaaceeeeiiiidnooooo ouuuuyty";
+
+    static final Typeahead EMPTY = build(Catalog.EMPTY);
+
+    // Trie nodes in preorder; node 0 is the root.
+    private final char[] label;
+    private final int[] firstChild;
+    private final int[] nextSibling;
+    private final int[] entry; // Rank of the suggestion ending at this node, or -1
+    private final int[] best;  // Lowest rank (most popular suggestion) in this node's subtree, or NONE
+    // Suggestion texts by rank, most popular first.
+    private final String[] texts;
+
+    private Typeahead(char[] label, int[] firstChild, int[] nextSibling, int[] entry, int[] best, String[] texts) {
+        this.label = label;
+        this.firstChild = firstChild;
+        this.nextSibling = nextSibling;
+        this.entry = entry;
+        this.best = best;
+        this.texts = texts;
+    }
+
+    /** Builds suggestions for every product name and name word, ranked by units sold. */
+    public static Typeahead build(Catalog catalog) {
+        Map<String, Candidate> byKey = new HashMap<>();
+        for (int i = 0; i < catalog.size(); i++) {
+            String name = catalog.getAt(i).getName();
+            if (name == null) continue;
+            int sales = catalog.getSales(i);
+            addCandidate(byKey, name, sales);
+            for (String word : name.trim().split("\\s+")) {
+                if (word.length() >= 2) {
+                    addCandidate(byKey, word, sales);
+                }
+            }
+        }
+
+        // Rank: best sellers first, then words shared by more products, then alphabetical.
+        List<Candidate> candidates = new ArrayList<>(byKey.values());
+        candidates.sort((a, b) -> a.sales != b.sales ? Long.compare(b.sales, a.sales)
+                : a.products != b.products ? Integer.compare(b.products, a.products) : a.key.compareTo(b.key));
+        String[] texts = new String[candidates.size()];
+        for (int rank = 0; rank < texts.length; rank++) {
+            candidates.get(rank).rank = rank;
+            texts[rank] = candidates.get(rank).text;
+        }
+
+        // Inserting keys in sorted order creates nodes in preorder and always appends to the last child.
+        candidates.sort((a, b) -> a.key.compareTo(b.key));
+        int capacity = 16;
+        char[] label = new char[capacity];
+        int[] firstChild = new int[capacity];
+        int[] nextSibling = new int[capacity];
+        int[] lastChild = new int[capacity];
+        int[] entry = new int[capacity];
+        firstChild[0] = nextSibling[0] = lastChild[0] = entry[0] = -1;
+        int nodes = 1;
+        int[] path = new int[MAX_KEY_LENGTH + 1];
+        String previous = "";
+        for (Candidate candidate : candidates) {
+            String key = candidate.key;
+            int common = 0;
+            while (common < previous.length() && common < key.length() && previous.charAt(common) == key.charAt(common)) {
+                common++;
+            }
+            int node = path[common];
+            for (int d = common; d < key.length(); d++) {
+                if (nodes == capacity) {
+                    capacity *= 2;
+                    label = Arrays.copyOf(label, capacity);
+                    firstChild = Arrays.copyOf(firstChild, capacity);
+                    nextSibling = Arrays.copyOf(nextSibling, capacity);
+                    lastChild = Arrays.copyOf(lastChild, capacity);
+                    entry = Arrays.copyOf(entry, capacity);
+                }
+                int child = nodes++;
+                label[child] = key.charAt(d);
+                firstChild[child] = nextSibling[child] = lastChild[child] = entry[child] = -1;
+                if (firstChild[node] == -1) {
+                    firstChild[node] = child;
+                } else {
+                    nextSibling[lastChild[node]] = child;
+                }
+                lastChild[node] = child;
+                path[d + 1] = child;
+                node = child;
+            }
+            entry[node] = candidate.rank;
+            previous = key;
+        }
+
+        // Children always follow their parent in preorder, so one backwards pass fills in subtree minimums.
+        int[] best = new int[nodes];
+        for (int n = nodes - 1; n >= 0; n--) {
+            int min = entry[n] >= 0 ? entry[n] : NONE;
+            for (int c = firstChild[n]; c != -1; c = nextSibling[c]) {
+                min = Math.min(min, best[c]);
+            }
+            best[n] = min;
+        }
+        return new Typeahead(Arrays.copyOf(label, nodes), Arrays.copyOf(firstChild, nodes),
+                Arrays.copyOf(nextSibling, nodes), Arrays.copyOf(entry, nodes), best, texts);
+    }
+
+    /** Scratch space for lookups; create one per thread (the EDT needs just one). */
+    public Lookup newLookup() {
+        return new Lookup();
+    }
+
+    public String getText(int suggestion) {
+        return texts[suggestion];
+    }
+
+    private static void addCandidate(Map<String, Candidate> byKey, String text, int sales) {
+        String key = normalize(text);
+        if (key.isEmpty()) return;
+        Candidate candidate = byKey.computeIfAbsent(key, k -> new Candidate(k, text.trim()));
+        candidate.sales += sales;
+        candidate.products++;
+    }
+
+    /** Lower-cases, folds Latin-1 accents and turns punctuation into single spaces: "Hermès  No.5" -> "hermes no 5". */
+    private static String normalize(String text) {
+        StringBuilder sb = new StringBuilder(Math.min(text.length(), MAX_KEY_LENGTH));
+        for (int i = 0; i < text.length() && sb.length() < MAX_KEY_LENGTH; i++) {
+            char c = fold(text.charAt(i));
+            if (c != ' ' || (sb.length() > 0 && sb.charAt(sb.length() - 1) != ' ')) {
+                sb.append(c);
+            }
+        }
+        int end = sb.length();
+        while (end > 0 && sb.charAt(end - 1) == ' ') end--;
+        return sb.substring(0, end);
+    }
+
+    private static char fold(char c) {
+        if (c < 0x80) {
+            if (c >= 'A' && c <= 'Z') return (char) (c + ('a' - 'A'));
+            return (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') ? c : ' ';
+        }
+        if (c >= 0xC0 && c <= 0xFF) {
+            return LATIN1_FOLD.charAt(c - 0xC0);
+        }
+        return Character.isLetterOrDigit(c) ? Character.toLowerCase(c) : ' ';
+    }
+
+    /** Reusable per-thread lookup state; suggest() allocates nothing. */
+    public final class Lookup {
+        private final char[] query = new char[MAX_QUERY_LENGTH];
+        private final char[] pathChars = new char[MAX_KEY_LENGTH + 1];
+        private final int[] rows = new int[(MAX_KEY_LENGTH + 1) * (MAX_QUERY_LENGTH + 1)];
+        private final int[] matchedNodes = new int[MAX_MATCHED_NODES];
+        private final int[] matchedDistances = new int[MAX_MATCHED_NODES];
+        private final int[] frontierKeys = new int[FRONTIER_CAPACITY]; // Descending, so the smallest key is last
+        private final int[] frontierNodes = new int[FRONTIER_CAPACITY]; // Node to expand, or -1 for a suggestion
+        private int queryLength;
+        private int maxEdits;
+        private int matchedCount;
+        private int frontierSize;
+
+        private Lookup() {
+        }
+
+        public Typeahead getTypeahead() {
+            return Typeahead.this;
+        }
+
+        /**
+         * Writes up to out.length (at most MAX_SUGGESTIONS) suggestion ranks for text into out and returns
+         * how many were written; pass them to getText(). Exact prefix matches come first, then matches
+         * needing one edit, and so on, each group ordered by popularity. Typos are only tolerated after the
+         * first character and once the query is long enough to stay selective: one edit from 3 characters,
+         * two from 6.
+         */
+        public int suggest(CharSequence text, int maxEdits, int[] out) {
+            queryLength = 0;
+            for (int i = 0; i < text.length() && queryLength < MAX_QUERY_LENGTH; i++) {
+                char c = fold(text.charAt(i));
+                if (c != ' ' || (queryLength > 0 && query[queryLength - 1] != ' ')) {
+                    query[queryLength++] = c;
+                }
+            }
+            while (queryLength > 0 && query[queryLength - 1] == ' ') queryLength--;
+            int limit = Math.min(out.length, MAX_SUGGESTIONS);
+            if (queryLength == 0 || limit == 0) {
+                return 0;
+            }
+            this.maxEdits = Math.min(maxEdits, queryLength < 3 ? 0 : queryLength < 6 ? 1 : 2);
+
+            int width = queryLength + 1;
+            for (int j = 0; j < width; j++) {
+                rows[j] = j;
+            }
+            // The first character must match exactly: typos there are rare, and it keeps the fuzzy walk
+            // out of the densest part of the trie.
+            matchedCount = 0;
+            for (int c = firstChild[0]; c != -1; c = nextSibling[c]) {
+                if (label[c] == query[0]) {
+                    walk(c, 1);
+                }
+            }
+
+            int emitted = 0;
+            for (int distance = 0; distance <= this.maxEdits && emitted < limit; distance++) {
+                frontierSize = 0;
+                for (int m = 0; m < matchedCount; m++) {
+                    if (matchedDistances[m] == distance) {
+                        offer(best[matchedNodes[m]], matchedNodes[m], limit - emitted);
+                    }
+                }
+                while (frontierSize > 0 && emitted < limit) {
+                    int key = frontierKeys[--frontierSize];
+                    int node = frontierNodes[frontierSize];
+                    if (node == -1) {
+                        if (!contains(out, emitted, key)) {
+                            out[emitted++] = key;
+                        }
+                        continue;
+                    }
+                    if (entry[node] >= 0) {
+                        offer(entry[node], -1, limit - emitted);
+                    }
+                    for (int c = firstChild[node]; c != -1; c = nextSibling[c]) {
+                        offer(best[c], c, limit - emitted);
+                    }
+                }
+            }
+            return emitted;
+        }
+
+        // Extends the edit-distance row for the child's prefix. The query matches every key below node once the
+        // whole query is within maxEdits of the prefix; descends further only while a deeper prefix could match better.
+        private void walk(int node, int depth) {
+            if (matchedCount == MAX_MATCHED_NODES || depth > MAX_KEY_LENGTH) return;
+            int width = queryLength + 1;
+            int row = depth * width;
+            int previousRow = row - width;
+            char c = label[node];
+            pathChars[depth] = c;
+            rows[row] = depth;
+            int rowMin = depth;
+            for (int j = 1; j < width; j++) {
+                int cost = query[j - 1] == c ? 0 : 1;
+                int value = Math.min(Math.min(rows[previousRow + j] + 1, rows[row + j - 1] + 1), rows[previousRow + j - 1] + cost);
+                if (depth > 1 && j > 1 && query[j - 1] == pathChars[depth - 1] && query[j - 2] == c) {
+                    value = Math.min(value, rows[previousRow - width + j - 2] + 1); // Swapped neighbours
+                }
+                rows[row + j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            int distance = rows[row + queryLength];
+            if (distance <= maxEdits) {
+                matchedNodes[matchedCount] = node;
+                matchedDistances[matchedCount++] = distance;
+            }
+            if (rowMin <= maxEdits && rowMin < distance) {
+                for (int child = firstChild[node]; child != -1; child = nextSibling[child]) {
+                    walk(child, depth + 1);
+                }
+            }
+        }
+
+        // Adds an item to the frontier, keeping at most a few times `remaining` of the smallest keys.
+        private void offer(int key, int node, int remaining) {
+            if (key == NONE) return;
+            int capacity = Math.min(FRONTIER_CAPACITY, remaining * 4);
+            while (frontierSize >= capacity) {
+                if (key >= frontierKeys[0]) return;
+                System.arraycopy(frontierKeys, 1, frontierKeys, 0, frontierSize - 1);
+                System.arraycopy(frontierNodes, 1, frontierNodes, 0, frontierSize - 1);
+                frontierSize--;
+            }
+            int i = frontierSize++;
+            while (i > 0 && frontierKeys[i - 1] < key) {
+                frontierKeys[i] = frontierKeys[i - 1];
+                frontierNodes[i] = frontierNodes[i - 1];
+                i--;
+            }
+            frontierKeys[i] = key;
+            frontierNodes[i] = node;
+        }
+
+        private boolean contains(int[] values, int count, int value) {
+            for (int i = 0; i < count; i++) {
+                if (values[i] == value) return true;
+            }
+            return false;
+        }
+    }
+
+    private static final class Candidate {
+        final String key;
+        final String text;
+        long sales;
+        int products;
+        int rank;
+
+        Candidate(String key, String text) {
+            this.key = key;
+            this.text = text;
+        }
+    }
+}
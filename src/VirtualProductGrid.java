@@ -0,0 +1,158 @@
+import javax.swing.*;
+import javax.swing.event.ChangeListener;
+import java.awt.*;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Product grid that only creates cards for the rows inside the viewport plus a few overscan rows.
+ * Cards that scroll out of view are recycled and re-bound to whichever products scroll in, so the
+ * number of Swing components stays constant no matter how large the catalog is.
+ */
+public class VirtualProductGrid extends JPanel implements Scrollable {
+    /** A reusable card component that can be re-bound to a different product. */
+    public interface Card {
+        JComponent getComponent();
+        void bind(Product product);
+    }
+
+    private static final int COLUMNS = 3;
+    private static final int GAP = 15;
+    private static final int INSET = 15;
+    private static final int ROW_HEIGHT = 200;
+    private static final int OVERSCAN_ROWS = 2;
+
+    private final Supplier<Card> cardFactory;
+    private final Map<Integer, Card> activeCards = new HashMap<>(); // product position -> bound card
+    private final ArrayDeque<Card> spareCards = new ArrayDeque<>();
+    private List<Product> products = Collections.emptyList();
+    private final ChangeListener scrollListener = e -> layoutCards();
+    private JViewport viewport; // The one scrollListener is registered with, if any
+
+    public VirtualProductGrid(Supplier<Card> cardFactory) {
+        super(null);
+        this.cardFactory = cardFactory;
+    }
+
+    public void setProducts(List<Product> products) {
+        this.products = products;
+        for (Card card : activeCards.values()) {
+            card.getComponent().setVisible(false);
+            spareCards.push(card);
+        }
+        activeCards.clear();
+        revalidate();
+        layoutCards();
+        repaint();
+    }
+
+    public List<Product> getProducts() {
+        return products;
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        if (getParent() instanceof JViewport) {
+            viewport = (JViewport) getParent();
+            viewport.addChangeListener(scrollListener);
+        }
+    }
+
+    @Override
+    public void removeNotify() {
+        if (viewport != null) {
+            viewport.removeChangeListener(scrollListener);
+            viewport = null;
+        }
+        super.removeNotify();
+    }
+
+    @Override
+    public void doLayout() {
+        layoutCards();
+    }
+
+    private void layoutCards() {
+        int count = products.size();
+        int rows = (count + COLUMNS - 1) / COLUMNS;
+        Rectangle visible = getVisibleRect();
+        if (visible.height == 0) {
+            visible = new Rectangle(0, 0, getWidth(), 800); // Not on screen yet; bind the first page
+        }
+
+        int rowPitch = ROW_HEIGHT + GAP;
+        int firstRow = Math.max(0, (visible.y - INSET) / rowPitch - OVERSCAN_ROWS);
+        int lastRow = Math.min(rows - 1, (visible.y + visible.height - INSET) / rowPitch + OVERSCAN_ROWS);
+        int first = firstRow * COLUMNS;
+        int last = Math.min(count - 1, (lastRow + 1) * COLUMNS - 1);
+
+        // Recycle cards that left the window.
+        Iterator<Map.Entry<Integer, Card>> it = activeCards.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, Card> entry = it.next();
+            if (entry.getKey() < first || entry.getKey() > last) {
+                entry.getValue().getComponent().setVisible(false);
+                spareCards.push(entry.getValue());
+                it.remove();
+            }
+        }
+
+        int cellWidth = Math.max(1, (getWidth() - 2 * INSET - (COLUMNS - 1) * GAP) / COLUMNS);
+        for (int i = first; i <= last; i++) {
+            Card card = activeCards.get(i);
+            if (card == null) {
+                card = spareCards.poll();
+                if (card == null) {
+                    card = cardFactory.get();
+                    add(card.getComponent());
+                }
+                card.bind(products.get(i));
+                card.getComponent().setVisible(true);
+                activeCards.put(i, card);
+            }
+            int row = i / COLUMNS;
+            int column = i % COLUMNS;
+            card.getComponent().setBounds(INSET + column * (cellWidth + GAP), INSET + row * rowPitch, cellWidth, ROW_HEIGHT);
+            card.getComponent().validate();
+        }
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        int rows = (products.size() + COLUMNS - 1) / COLUMNS;
+        int height = 2 * INSET + rows * ROW_HEIGHT + Math.max(0, rows - 1) * GAP;
+        int width = 2 * INSET + COLUMNS * 300 + (COLUMNS - 1) * GAP;
+        return new Dimension(width, height);
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return 20;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return true;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
+    }
+}